@@ -0,0 +1,52 @@
+package com.example.iattend
+
+import android.graphics.BitmapFactory
+import android.os.Debug
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.example.face.TfLiteFaceEmbedder
+
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Counts Java heap allocations per steady-state TfLiteFaceEmbedder.embed() call on a device, plain
+ * and mirrored. Our own code allocates nothing once warm; the budget covers the objects the TFLite
+ * Java wrapper creates inside each run (the output map iterator and the direct-buffer view it copies
+ * the output through).
+ */
+@RunWith(AndroidJUnit4::class)
+class EmbedAllocationTest {
+    @Test
+    @Suppress("DEPRECATION")
+    fun steadyStateEmbedStaysWithinWrapperBudget() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val assets = context.assets.list("").orEmpty()
+        assumeTrue(assets.contains(FaceRecognitionActivity.MODEL_ASSET_NAME))
+        val bitmap = context.assets.open(REFERENCE_IMAGE).use { BitmapFactory.decodeStream(it) }
+        val embedder = TfLiteFaceEmbedder(context, FaceRecognitionActivity.MODEL_ASSET_NAME)
+        try {
+            val out = FloatArray(embedder.embeddingSize)
+            repeat(WARM_UP_RUNS) { embedder.embed(bitmap, it % 2 == 1, out) }
+
+            Debug.resetThreadAllocCount()
+            Debug.startAllocCounting()
+            repeat(RUNS) { embedder.embed(bitmap, it % 2 == 1, out) }
+            Debug.stopAllocCounting()
+
+            val perCall = Debug.getThreadAllocCount().toDouble() / RUNS
+            assertTrue("$perCall allocations per embed()", perCall <= WRAPPER_ALLOCATIONS_PER_RUN)
+        } finally {
+            embedder.close()
+        }
+    }
+
+    private companion object {
+        const val REFERENCE_IMAGE = "IMG_7308.JPG"
+        const val WARM_UP_RUNS = 10
+        const val RUNS = 50
+        const val WRAPPER_ALLOCATIONS_PER_RUN = 4.0
+    }
+}
@@ -7,6 +7,8 @@ import android.graphics.Matrix;
 import android.graphics.SurfaceTexture;
 import android.hardware.Camera;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.Surface;
 import android.view.TextureView;
 import android.view.View;
@@ -21,10 +23,16 @@ import com.example.iattend.backend.UserService;
 import com.example.iattend.backend.utils.LogUtils;
 import com.example.iattend.domain.model.AuthResult;
 import com.example.iattend.domain.model.User;
+import com.example.face.EmbedderPool;
+import com.example.face.FaceRecognition;
+import com.example.face.FaceTemplate;
+import com.example.face.TfLiteFaceEmbedder;
 
 import java.io.ByteArrayOutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
 
@@ -34,9 +42,15 @@ public class CollectFaceActivity extends AppCompatActivity {
     private Button btnTakePhoto, btnRetake, btnConfirm;
     private Camera camera;
     private Bitmap capturedBitmap;
+    // 拍照前从预览中截取的若干帧，与拍摄的照片一起平均成人脸模板
+    private final List<Bitmap> enrollShots = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private AuthService authService;
     private UserService userService;
 
+    private static final int ENROLL_PREVIEW_SHOTS = 4;
+    private static final long ENROLL_SHOT_INTERVAL_MS = 200L;
+
     private static final int REQUEST_CAMERA_PERMISSION = 101;
     private static final String[] CAMERA_PERMISSIONS = {
             android.Manifest.permission.CAMERA
@@ -57,6 +71,8 @@ public class CollectFaceActivity extends AppCompatActivity {
         initViews();
         authService = new AuthService();
         userService = new UserService();
+        EmbedderPool.warmUpDetector(this, FaceRecognitionActivity.DETECTOR_ASSET_NAME);
+        EmbedderPool.warmUp(this, FaceRecognitionActivity.MODEL_ASSET_NAME);
 
         if (checkCameraPermission()) {
             // 相机权限已授予，等待 SurfaceTexture 就绪后 setupCamera() 会自动调用
@@ -250,17 +266,37 @@ public class CollectFaceActivity extends AppCompatActivity {
 
     private void takePhoto() {
         if (camera != null) {
-            camera.takePicture(null, null, (data, camera) -> {
-                capturedBitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
-                capturedBitmap = rotateCapturedBitmap(capturedBitmap);
+            btnTakePhoto.setEnabled(false);
+            enrollShots.clear();
+            captureEnrollShot(ENROLL_PREVIEW_SHOTS);
+        }
+    }
 
-                runOnUiThread(this::showPhotoControls);
-            });
+    /**
+     * 每隔 200ms 从预览截取一帧（半分辨率即可满足特征提取），截满后再正式拍照
+     */
+    private void captureEnrollShot(int remaining) {
+        if (camera == null) {
+            btnTakePhoto.setEnabled(true);
+            return;
+        }
+        if (remaining > 0) {
+            Bitmap frame = textureView.getBitmap(textureView.getWidth() / 2, textureView.getHeight() / 2);
+            if (frame != null) enrollShots.add(frame);
+            mainHandler.postDelayed(() -> captureEnrollShot(remaining - 1), ENROLL_SHOT_INTERVAL_MS);
+            return;
         }
+        camera.takePicture(null, null, (data, camera) -> {
+            capturedBitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+            capturedBitmap = rotateCapturedBitmap(capturedBitmap);
+
+            runOnUiThread(this::showPhotoControls);
+        });
     }
 
     private void retakePhoto() {
         capturedBitmap = null;
+        enrollShots.clear();
 
         btnTakePhoto.setVisibility(View.VISIBLE);
         btnRetake.setVisibility(View.GONE);
@@ -290,6 +326,11 @@ public class CollectFaceActivity extends AppCompatActivity {
         LogUtils.d("CollectFaceActivity", "Original bitmap: " + bitmap.getWidth() + "x" + bitmap.getHeight());
         LogUtils.d("CollectFaceActivity", "Resized bitmap: " + resizedBitmap.getWidth() + "x" + resizedBitmap.getHeight());
 
+        // 与头像上传并行计算人脸模板
+        List<Bitmap> shots = new ArrayList<>(enrollShots);
+        shots.add(bitmap);
+        CompletableFuture<String> templateFuture = computeFaceTemplate(shots);
+
         // 获取当前用户
         CompletableFuture<User> userFuture = authService.getCurrentUser();
         userFuture.thenAccept(user -> {
@@ -315,8 +356,8 @@ public class CollectFaceActivity extends AppCompatActivity {
             CompletableFuture<String> uploadFuture = userService.uploadAvatar(user.getId(), imageData, userToken);
             uploadFuture.thenAccept(avatarUrl -> {
                 if (avatarUrl != null && !avatarUrl.isEmpty()) {
-                    // 更新用户信息的头像URL
-                    updateUserAvatar(user, avatarUrl);
+                    // 更新用户信息的头像URL和人脸模板
+                    templateFuture.thenAccept(template -> updateUserAvatar(user, avatarUrl, template));
                 } else {
                     runOnUiThread(() -> {
                         showLoading(false);
@@ -340,13 +381,59 @@ public class CollectFaceActivity extends AppCompatActivity {
         });
     }
 
-    private void updateUserAvatar(User user, String avatarUrl) {
+    /**
+     * 对多帧分别提取特征并取平均，编码为可存入 profiles.face_template 的短文本。
+     * 失败时返回 null，此时只更新头像，验证会退回到下载头像提取特征
+     */
+    private CompletableFuture<String> computeFaceTemplate(List<Bitmap> shots) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        String modelTag = FaceRecognitionActivity.templateModelTag(FaceRecognitionActivity.MODEL_ASSET_NAME);
+        // 模型在推理线程上从模型池获取，首次加载不占用主线程
+        EmbedderPool.acquireAsync(this, FaceRecognitionActivity.MODEL_ASSET_NAME, new FaceRecognition.Callback<TfLiteFaceEmbedder>() {
+            @Override
+            public void onResult(TfLiteFaceEmbedder embedder) {
+                if (embedder.isPairwise()) {
+                    EmbedderPool.release(embedder);
+                    future.complete(null);
+                    return;
+                }
+                new FaceRecognition(embedder).enrollmentTemplateAsync(shots, new FaceRecognition.Callback<float[]>() {
+                    @Override
+                    public void onResult(float[] template) {
+                        EmbedderPool.release(embedder);
+                        String encoded = FaceTemplate.encode(template, modelTag);
+                        LogUtils.d("CollectFaceActivity", "Face template from " + shots.size() + " shots: " + encoded.length() + " chars");
+                        future.complete(encoded);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        EmbedderPool.release(embedder);
+                        LogUtils.e("CollectFaceActivity", "Face template failed", error);
+                        future.complete(null);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                LogUtils.w("CollectFaceActivity", "Face model unavailable: " + error.getMessage());
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    private void updateUserAvatar(User user, String avatarUrl, String faceTemplate) {
         User updatedUser = new User();
         updatedUser.setId(user.getId());
         updatedUser.setEmail(user.getEmail());
         updatedUser.setName(user.getName());
         updatedUser.setUserClass(user.getUserClass());
         updatedUser.setAvatarUrl(avatarUrl);
+        updatedUser.setFaceTemplate(faceTemplate);
+        // 未能生成新模板时清空旧模板，避免继续用旧照片的特征比对；验证会退回到从新头像提取特征
+        updatedUser.setClearFaceTemplate(faceTemplate == null);
 
         CompletableFuture<AuthResult> updateFuture = authService.updateUser(updatedUser);
         updateFuture.thenAccept(result -> {
@@ -370,6 +457,7 @@ public class CollectFaceActivity extends AppCompatActivity {
     }
 
     private void showPhotoControls() {
+        btnTakePhoto.setEnabled(true);
         btnTakePhoto.setVisibility(View.GONE);
         btnRetake.setVisibility(View.VISIBLE);
         btnConfirm.setVisibility(View.VISIBLE);
@@ -482,6 +570,8 @@ public class CollectFaceActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
+        mainHandler.removeCallbacksAndMessages(null);
+        if (btnTakePhoto != null) btnTakePhoto.setEnabled(true);
         releaseCamera();
     }
 
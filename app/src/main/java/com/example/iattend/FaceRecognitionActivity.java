@@ -4,8 +4,14 @@ import android.app.Activity;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.ImageFormat;
+import android.graphics.SurfaceTexture;
+import android.hardware.Camera;
 import android.os.Bundle;
 import android.provider.MediaStore;
+import android.view.Surface;
+import android.view.TextureView;
+import android.view.View;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -17,35 +23,75 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.face.EmbedderPool;
+import com.example.face.EmbeddingCache;
+import com.example.face.FaceMetrics;
 import com.example.face.FaceRecognition;
+import com.example.face.FaceTemplate;
+import com.example.face.FrameVerifier;
 import com.example.face.TfLiteFaceEmbedder;
+import com.example.face.YuvFrame;
+import com.example.iattend.backend.utils.LogUtils;
 import com.example.iattend.data.remote.SupabaseClient;
+import com.example.iattend.data.remote.SupabaseHttp;
 import com.example.iattend.data.remote.model.UserProfile;
 
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
 public class FaceRecognitionActivity extends AppCompatActivity {
 
     private static final int REQ_CAPTURE_REF = 3001;
     private static final int REQ_CAPTURE_PROBE = 3002;
+    static final String MODEL_ASSET_NAME = "mobile_face_net.tflite";
+    static final String DETECTOR_ASSET_NAME = "face_detection_front.tflite";
+    static final float PASS_THRESHOLD = 0.7f;
+    // 首轮得分落在阈值 ±0.1 内时才追加翻转图推理
+    private static final float UNCERTAINTY_BAND = 0.1f;
+    // 连续多少帧通过才算验证成功，以及实时验证的超时时间
+    private static final int REQUIRED_PASSES = 3;
+    private static final long STREAM_TIMEOUT_MS = 8000;
+    private static final int PREVIEW_WIDTH = 640;
+    private static final int PREVIEW_HEIGHT = 480;
 
     private ImageView ivPreview;
+    private TextureView textureView;
     private Button btnCaptureRef;
     private Button btnVerify;
     private TextView tvSimilarity;
     private TextView tvStatus;
 
     private Bitmap refBitmap;
+    private float[] refEmbedding;
+    private long refCacheKey;
+    private static EmbeddingCache embeddingCache;
+    // 调试用：intent 传入 faceMetrics=true 时记录各阶段耗时并输出 JSON 日志
+    private static final FaceMetrics faceMetrics = new FaceMetrics();
     private String refAssetName;
     private String sessionCode;
     private double latitude;
     private double longitude;
     private int distance;
 
+    private Camera camera;
+    private TfLiteFaceEmbedder streamEmbedder;
+    private FrameVerifier verifier;
+    private Future<float[]> streamReference;
+    // 模型在推理线程上从模型池获取，期间为 true；stopStreaming 置为 false 后迟到的嵌入器直接归还
+    private boolean streamAcquiring;
+    // 拍照比对在 facelib 推理线程上异步执行，新请求会取消尚未开始的旧请求
+    private TfLiteFaceEmbedder probeEmbedder;
+    private FaceRecognition probeRecognition;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable streamTimeout = this::onStreamTimeout;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_face_recognition);
 
         ivPreview = findViewById(R.id.ivPreview);
+        textureView = findViewById(R.id.textureView);
         btnCaptureRef = findViewById(R.id.btnCaptureRef);
         btnVerify = findViewById(R.id.btnVerify);
         tvSimilarity = findViewById(R.id.tvSimilarity);
@@ -57,13 +103,33 @@ public class FaceRecognitionActivity extends AppCompatActivity {
         latitude = getIntent().getDoubleExtra("latitude", 0);
         longitude = getIntent().getDoubleExtra("longitude", 0);
         distance = getIntent().getIntExtra("distance", 0);
+        EmbedderPool.warmUpDetector(this, DETECTOR_ASSET_NAME);
+        EmbedderPool.warmUp(this, modelAssetName());
         loadRefFromProfileAvatarOrAssets();
         btnCaptureRef.setOnClickListener(v -> loadRefFromProfileAvatarOrAssets());
         btnVerify.setOnClickListener(v -> {
-            if (ensureCameraPermission()) capture(REQ_CAPTURE_PROBE);
+            if (ensureCameraPermission()) startStreaming();
         });
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        stopStreaming();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (probeRecognition != null) probeRecognition.cancelPending();
+        if (probeEmbedder != null) {
+            final TfLiteFaceEmbedder emb = probeEmbedder;
+            FaceRecognition.runAfterPending(() -> EmbedderPool.release(emb));
+        }
+        probeEmbedder = null;
+        probeRecognition = null;
+    }
+
     private void capture(int req) {
         Intent intent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
         try {
@@ -81,51 +147,449 @@ public class FaceRecognitionActivity extends AppCompatActivity {
         if (bmp == null) return;
         ivPreview.setImageBitmap(bmp);
         if (requestCode == REQ_CAPTURE_PROBE) {
-            if (refBitmap == null) {
+            if (refBitmap == null && refEmbedding == null) {
                 Toast.makeText(this, getString(R.string.please_enter_code), Toast.LENGTH_SHORT).show();
                 return;
             }
-            float sim = computeSimilarity(refBitmap, bmp);
-            tvSimilarity.setText("相似度: " + String.format(java.util.Locale.getDefault(), "%.3f", sim));
-            showSimilarityPopup(sim);
-            if (sim >= 0.7f) {
-                tvStatus.setText("状态: 人脸通过，正在上报...");
-                doCheckin();
+            scoreProbeAsync(bmp);
+        }
+    }
+
+    private void onProbeScored(float sim) {
+        tvSimilarity.setText("相似度: " + String.format(java.util.Locale.getDefault(), "%.3f", sim));
+        showSimilarityPopup(sim);
+        if (sim >= PASS_THRESHOLD) {
+            tvStatus.setText("状态: 人脸通过，正在上报...");
+            doCheckin();
+        } else {
+            tvStatus.setText("状态: 人脸未通过，正在记录...");
+            SupabaseClient.getInstance()
+                    .submitFailedCheckIn(sessionCode, latitude, longitude, distance,
+                            System.currentTimeMillis(), "fail_face")
+                    .thenAccept(success -> runOnUiThread(() -> {
+                        if (success) {
+                            tvStatus.setText("状态: 人脸未通过（已记录）");
+                            Toast.makeText(this, "人脸识别未通过，已记录到系统", Toast.LENGTH_SHORT).show();
+                        } else {
+                            tvStatus.setText("状态: 人脸未通过（记录失败）");
+                        }
+                    }))
+                    .exceptionally(t -> {
+                        runOnUiThread(() -> tvStatus.setText("状态: 人脸未通过（记录失败）"));
+                        return null;
+                    });
+        }
+    }
+
+    /**
+     * 实时验证：前置摄像头预览帧直接送入 facelib，只处理最新一帧，
+     * 连续 REQUIRED_PASSES 帧通过即签到；相机不可用或配对模型时退回系统拍照。
+     * 参考特征未就绪时先在推理线程上提取，完成后再创建验证器并打开相机。
+     */
+    private void startStreaming() {
+        if (verifier != null || streamEmbedder != null || streamAcquiring) return;
+        if (refBitmap == null && refEmbedding == null) {
+            Toast.makeText(this, getString(R.string.please_enter_code), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        streamAcquiring = true;
+        tvStatus.setText("状态: 正在加载模型...");
+        EmbedderPool.acquireAsync(this, modelAssetName(), new FaceRecognition.Callback<TfLiteFaceEmbedder>() {
+            @Override
+            public void onResult(TfLiteFaceEmbedder emb) {
+                runOnUiThread(() -> {
+                    boolean wanted = streamAcquiring && !isFinishing() && !isDestroyed();
+                    streamAcquiring = false;
+                    if (!wanted) {
+                        EmbedderPool.release(emb);
+                        return;
+                    }
+                    streamEmbedder = emb;
+                    streamWithEmbedder();
+                });
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                LogUtils.w("FaceRecognition", "model load failed: " + error);
+                runOnUiThread(() -> {
+                    if (!streamAcquiring) return;
+                    streamAcquiring = false;
+                    if (!isFinishing() && !isDestroyed()) capture(REQ_CAPTURE_PROBE);
+                });
+            }
+        });
+    }
+
+    private void streamWithEmbedder() {
+        try {
+            FaceRecognition fr = new FaceRecognition(streamEmbedder).setAlpha(13.9f).setCenter(0.30f)
+                    .setUncertaintyBand(PASS_THRESHOLD, UNCERTAINTY_BAND)
+                    .setMetrics(metricsEnabled() ? faceMetrics : null);
+            if (streamEmbedder.isPairwise()) {
+                EmbedderPool.release(streamEmbedder);
+                streamEmbedder = null;
+                capture(REQ_CAPTURE_PROBE);
+                return;
+            }
+            if (refEmbedding != null) {
+                beginStreaming(fr, refEmbedding);
             } else {
-                tvStatus.setText("状态: 人脸未通过，正在记录...");
-                SupabaseClient.getInstance()
-                        .submitFailedCheckIn(sessionCode, latitude, longitude, distance,
-                                System.currentTimeMillis(), "fail_face")
-                        .thenAccept(success -> runOnUiThread(() -> {
-                            if (success) {
-                                tvStatus.setText("状态: 人脸未通过（已记录）");
-                                Toast.makeText(this, "人脸识别未通过，已记录到系统", Toast.LENGTH_SHORT).show();
-                            } else {
-                                tvStatus.setText("状态: 人脸未通过（记录失败）");
-                            }
-                        }))
-                        .exceptionally(t -> {
-                            runOnUiThread(() -> tvStatus.setText("状态: 人脸未通过（记录失败）"));
-                            return null;
-                        });
+                tvStatus.setText("状态: 正在提取参考特征...");
+                streamReference = fr.referenceEmbeddingAsync(refBitmap,
+                        streamReferenceCallback(fr, streamEmbedder, refBitmap, refCacheKey));
+            }
+        } catch (Throwable t) {
+            stopStreaming();
+            capture(REQ_CAPTURE_PROBE);
+        }
+    }
+
+    private FaceRecognition.Callback<float[]> streamReferenceCallback(FaceRecognition fr, TfLiteFaceEmbedder emb,
+                                                                     Bitmap reference, long cacheKey) {
+        int dim = emb.getEmbeddingSize();
+        return new FaceRecognition.Callback<float[]>() {
+            @Override
+            public void onResult(float[] embedding) {
+                // 参考图只提取一次特征，并按用户+资料版本+模型写入本地缓存
+                if (cacheKey != 0L) {
+                    try {
+                        embeddingCache(dim).put(cacheKey, embedding);
+                    } catch (Exception ignored) {}
+                }
+                runOnUiThread(() -> {
+                    if (isFinishing() || isDestroyed() || streamEmbedder != emb || verifier != null) return;
+                    streamReference = null;
+                    if (refBitmap != reference) {
+                        // 提取期间参考图已更换，按新参考图重新开始
+                        stopStreaming();
+                        startStreaming();
+                        return;
+                    }
+                    if (refEmbedding == null) refEmbedding = embedding;
+                    try {
+                        beginStreaming(fr, refEmbedding);
+                    } catch (Throwable t) {
+                        stopStreaming();
+                        capture(REQ_CAPTURE_PROBE);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                LogUtils.w("FaceRecognition", "reference embedding failed: " + error);
+                runOnUiThread(() -> {
+                    if (isFinishing() || isDestroyed() || streamEmbedder != emb || verifier != null) return;
+                    stopStreaming();
+                    capture(REQ_CAPTURE_PROBE);
+                });
+            }
+        };
+    }
+
+    private void beginStreaming(FaceRecognition fr, float[] reference) {
+        verifier = new FrameVerifier(fr, reference, PASS_THRESHOLD, REQUIRED_PASSES, frameListener);
+        textureView.setVisibility(View.VISIBLE);
+        if (textureView.isAvailable()) {
+            openStreamCamera();
+        } else {
+            textureView.setSurfaceTextureListener(surfaceTextureListener);
+        }
+    }
+
+    private void openStreamCamera() {
+        if (verifier == null) return;
+        try {
+            Camera.CameraInfo info = new Camera.CameraInfo();
+            int cameraId = 0;
+            for (int i = 0; i < Camera.getNumberOfCameras(); i++) {
+                Camera.getCameraInfo(i, info);
+                if (info.facing == Camera.CameraInfo.CAMERA_FACING_FRONT) {
+                    cameraId = i;
+                    break;
+                }
+            }
+            Camera.getCameraInfo(cameraId, info);
+            camera = Camera.open(cameraId);
+            Camera.Parameters params = camera.getParameters();
+            Camera.Size size = choosePreviewSize(params);
+            params.setPreviewSize(size.width, size.height);
+            params.setPreviewFormat(ImageFormat.NV21);
+            camera.setParameters(params);
+            int degrees = displayDegrees();
+            int display = info.facing == Camera.CameraInfo.CAMERA_FACING_FRONT
+                    ? (360 - (info.orientation + degrees) % 360) % 360
+                    : (info.orientation - degrees + 360) % 360;
+            camera.setDisplayOrientation(display);
+            final int frameRotation = info.facing == Camera.CameraInfo.CAMERA_FACING_FRONT
+                    ? (info.orientation + degrees) % 360
+                    : (info.orientation - degrees + 360) % 360;
+            final int width = size.width;
+            final int height = size.height;
+            int bufferSize = width * height * ImageFormat.getBitsPerPixel(ImageFormat.NV21) / 8;
+            for (int i = 0; i < 3; i++) camera.addCallbackBuffer(new byte[bufferSize]);
+            final FrameVerifier v = verifier;
+            camera.setPreviewCallbackWithBuffer((data, cam) ->
+                    v.offer(YuvFrame.nv21(data, width, height, frameRotation)));
+            camera.setPreviewTexture(textureView.getSurfaceTexture());
+            camera.startPreview();
+            verifier.start();
+            tvStatus.setText("状态: 正在识别，请正对摄像头...");
+            handler.postDelayed(streamTimeout, STREAM_TIMEOUT_MS);
+        } catch (Exception e) {
+            stopStreaming();
+            capture(REQ_CAPTURE_PROBE);
+        }
+    }
+
+    private void stopStreaming() {
+        handler.removeCallbacks(streamTimeout);
+        streamAcquiring = false;
+        if (streamReference != null) {
+            streamReference.cancel(false);
+            streamReference = null;
+        }
+        if (verifier != null) {
+            verifier.stop();
+            LogUtils.d("FaceRecognition", "frames=" + verifier.getProcessedFrames()
+                    + " dropped=" + verifier.getDroppedFrames() + " " + verifier.getQualityGate().snapshot());
+            if (metricsEnabled()) LogUtils.d("FaceRecognition", "metrics " + faceMetrics.toJson());
+            verifier = null;
+        }
+        synchronized (this) {
+            if (camera != null) {
+                camera.setPreviewCallbackWithBuffer(null);
+                camera.stopPreview();
+                camera.release();
+                camera = null;
+            }
+        }
+        if (streamEmbedder != null) {
+            // 排在推理线程已提交的帧之后再归还，避免内存回收时关闭仍在推理的解释器
+            final TfLiteFaceEmbedder emb = streamEmbedder;
+            FaceRecognition.runAfterPending(() -> EmbedderPool.release(emb));
+            streamEmbedder = null;
+        }
+        textureView.setVisibility(View.GONE);
+    }
+
+    /**
+     * 超时仍未达到连续 REQUIRED_PASSES 帧通过时，不采信单帧最高分，
+     * 退回系统拍照重新比对，由拍照结果决定通过或记录失败。
+     */
+    private void onStreamTimeout() {
+        if (verifier == null) return;
+        LogUtils.d("FaceRecognition", "stream timeout, best frame score=" + verifier.getBestScore());
+        stopStreaming();
+        tvStatus.setText("状态: 实时识别超时，请拍照验证");
+        capture(REQ_CAPTURE_PROBE);
+    }
+
+    private final FrameVerifier.Listener frameListener = new FrameVerifier.Listener() {
+        @Override
+        public void onFrameScored(float score, int consecutivePasses) {
+            runOnUiThread(() -> tvSimilarity.setText("相似度: "
+                    + String.format(java.util.Locale.getDefault(), "%.3f", score)));
+        }
+
+        @Override
+        public void onVerified(float score, long elapsedMillis) {
+            runOnUiThread(() -> {
+                if (verifier == null) return;
+                stopStreaming();
+                onProbeScored(score);
+                tvStatus.append("（" + elapsedMillis + " ms）");
+            });
+        }
+
+        @Override
+        public void onFrameReleased(YuvFrame frame) {
+            synchronized (FaceRecognitionActivity.this) {
+                if (camera != null) camera.addCallbackBuffer(frame.data());
+            }
+        }
+    };
+
+    private final TextureView.SurfaceTextureListener surfaceTextureListener = new TextureView.SurfaceTextureListener() {
+        @Override
+        public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+            openStreamCamera();
+        }
+
+        @Override
+        public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {}
+
+        @Override
+        public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+            stopStreaming();
+            return true;
+        }
+
+        @Override
+        public void onSurfaceTextureUpdated(SurfaceTexture surface) {}
+    };
+
+    private Camera.Size choosePreviewSize(Camera.Parameters params) {
+        Camera.Size best = params.getPreviewSize();
+        long bestDiff = Long.MAX_VALUE;
+        for (Camera.Size s : params.getSupportedPreviewSizes()) {
+            long diff = Math.abs((long) s.width * s.height - (long) PREVIEW_WIDTH * PREVIEW_HEIGHT);
+            if (diff < bestDiff) {
+                bestDiff = diff;
+                best = s;
             }
         }
+        return best;
+    }
+
+    private int displayDegrees() {
+        switch (getWindowManager().getDefaultDisplay().getRotation()) {
+            case Surface.ROTATION_90: return 90;
+            case Surface.ROTATION_180: return 180;
+            case Surface.ROTATION_270: return 270;
+            default: return 0;
+        }
+    }
+
+    /**
+     * 比对用的识别器就绪后在主线程执行 action；首次使用时在推理线程上从模型池获取嵌入器，
+     * 模型加载不占用主线程。
+     */
+    private void withProbeRecognition(Consumer<FaceRecognition> action, Runnable onFailure) {
+        if (probeRecognition != null) {
+            action.accept(probeRecognition);
+            return;
+        }
+        EmbedderPool.acquireAsync(this, modelAssetName(), new FaceRecognition.Callback<TfLiteFaceEmbedder>() {
+            @Override
+            public void onResult(TfLiteFaceEmbedder emb) {
+                runOnUiThread(() -> {
+                    if (isFinishing() || isDestroyed()) {
+                        EmbedderPool.release(emb);
+                        return;
+                    }
+                    if (probeRecognition == null) {
+                        probeEmbedder = emb;
+                        probeRecognition = new FaceRecognition(probeEmbedder).setAlpha(13.9f).setCenter(0.30f)
+                                .setUncertaintyBand(PASS_THRESHOLD, UNCERTAINTY_BAND)
+                                .setMetrics(metricsEnabled() ? faceMetrics : null);
+                    } else {
+                        // 并发获取时已有识别器，多出的引用直接归还
+                        EmbedderPool.release(emb);
+                    }
+                    action.accept(probeRecognition);
+                });
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                LogUtils.w("FaceRecognition", "model load failed: " + error);
+                runOnUiThread(() -> {
+                    if (!isFinishing() && !isDestroyed()) onFailure.run();
+                });
+            }
+        });
+    }
+
+    private void scoreProbeAsync(Bitmap probe) {
+        withProbeRecognition(fr -> {
+            tvStatus.setText("状态: 正在比对...");
+            FaceRecognition.Callback<Float> callback = new FaceRecognition.Callback<Float>() {
+                @Override
+                public void onResult(Float sim) {
+                    if (metricsEnabled()) LogUtils.d("FaceRecognition", "metrics " + faceMetrics.toJson());
+                    runOnUiThread(() -> {
+                        if (!isFinishing() && !isDestroyed()) onProbeScored(sim);
+                    });
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    LogUtils.e("FaceRecognition", "probe scoring failed", error);
+                    runOnUiThread(() -> {
+                        if (isFinishing() || isDestroyed()) return;
+                        Toast.makeText(FaceRecognitionActivity.this, "模型加载失败，请检查 assets", Toast.LENGTH_SHORT).show();
+                        onProbeScored(0f);
+                    });
+                }
+            };
+            // 参考特征尚未就绪（或配对模型）时直接比对两张图，不在主线程提取参考特征
+            if (refEmbedding != null && !probeEmbedder.isPairwise()) {
+                fr.computeSimilarityAsync(refEmbedding, probe, callback);
+            } else {
+                fr.computeSimilarityAsync(refBitmap, probe, callback);
+            }
+        }, () -> Toast.makeText(this, "模型加载失败，请检查 assets", Toast.LENGTH_SHORT).show());
+    }
+
+    /** 参考图加载后在推理线程上预先提取特征，提取完成后写入本地缓存。 */
+    private void prepareReferenceEmbedding(Bitmap reference, long cacheKey) {
+        withProbeRecognition(fr -> {
+            if (probeEmbedder.isPairwise() || refBitmap != reference) return;
+            int dim = probeEmbedder.getEmbeddingSize();
+            fr.referenceEmbeddingAsync(reference, new FaceRecognition.Callback<float[]>() {
+                @Override
+                public void onResult(float[] embedding) {
+                    if (cacheKey != 0L) {
+                        try {
+                            embeddingCache(dim).put(cacheKey, embedding);
+                        } catch (Exception ignored) {}
+                    }
+                    runOnUiThread(() -> {
+                        if (refBitmap == reference && refEmbedding == null) refEmbedding = embedding;
+                    });
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    LogUtils.w("FaceRecognition", "reference embedding failed: " + error);
+                }
+            });
+        }, () -> {});
     }
 
-    private float computeSimilarity(Bitmap ref, Bitmap probe) {
+    /**
+     * 在网络回调线程上查本地缓存：只读取模型池中已加载模型的特征维度，
+     * 模型尚未加载（或为配对模型）时视为未命中，不在此线程加载模型。
+     */
+    private float[] lookupReferenceEmbedding(long key) {
+        int dim = EmbedderPool.loadedEmbeddingSize(modelAssetName());
+        if (dim <= 0) return null;
         try {
-            String asset = getIntent().getStringExtra("modelAssetName");
-            if (asset == null || asset.isEmpty()) asset = "mobile_face_net.tflite";
-            TfLiteFaceEmbedder emb = new TfLiteFaceEmbedder(this, asset);
-            FaceRecognition fr = new FaceRecognition(emb).setAlpha(13.9f).setCenter(0.30f);
-            float sim = fr.computeSimilarity(ref, probe);
-            return sim;
+            EmbeddingCache cache = embeddingCache(dim);
+            float[] out = new float[cache.getDimension()];
+            return cache.get(key, out) ? out : null;
         } catch (Throwable t) {
-            Toast.makeText(this, "模型加载失败，请检查 assets", Toast.LENGTH_SHORT).show();
-            return 0f;
+            return null;
         }
     }
 
+    private EmbeddingCache embeddingCache(int dim) throws java.io.IOException {
+        synchronized (FaceRecognitionActivity.class) {
+            if (embeddingCache == null || embeddingCache.getDimension() != dim) {
+                java.io.File file = new java.io.File(getApplicationContext().getFilesDir(), "face_embeddings.bin");
+                embeddingCache = EmbeddingCache.open(file, dim, 256);
+            }
+            return embeddingCache;
+        }
+    }
+
+    /** Identifies the model and preprocessing that produced an embedding, for caches and stored templates. */
+    static String templateModelTag(String modelAssetName) {
+        return modelAssetName + "@" + TfLiteFaceEmbedder.PREPROCESSING_VERSION;
+    }
+
+    private String modelAssetName() {
+        String asset = getIntent().getStringExtra("modelAssetName");
+        if (asset == null || asset.isEmpty()) asset = MODEL_ASSET_NAME;
+        return asset;
+    }
+
+    private boolean metricsEnabled() {
+        return getIntent().getBooleanExtra("faceMetrics", false);
+    }
+
     private boolean ensureCameraPermission() {
         if (androidx.core.content.ContextCompat.checkSelfPermission(this, android.Manifest.permission.CAMERA)
                 == android.content.pm.PackageManager.PERMISSION_GRANTED) return true;
@@ -139,7 +603,10 @@ public class FaceRecognitionActivity extends AppCompatActivity {
             Bitmap bmp = BitmapFactory.decodeStream(is);
             is.close();
             refBitmap = bmp;
+            refEmbedding = null;
+            refCacheKey = 0L;
             ivPreview.setImageBitmap(bmp);
+            prepareReferenceEmbedding(bmp, 0L);
             Toast.makeText(this, "已加载参考图片", Toast.LENGTH_SHORT).show();
         } catch (Exception e) {
             Toast.makeText(this, "参考图片加载失败", Toast.LENGTH_SHORT).show();
@@ -149,22 +616,46 @@ public class FaceRecognitionActivity extends AppCompatActivity {
     private void loadRefFromProfileAvatarOrAssets() {
         try {
             SupabaseClient.getInstance().getCurrentUserProfile()
-                    .thenAccept(profile -> runOnUiThread(() -> {
+                    .thenAccept(profile -> {
+                        // 注册时保存的人脸模板可直接作为参考特征，省去下载头像和提取特征
+                        float[] template = profile != null
+                                ? FaceTemplate.decode(profile.getFaceTemplate(), templateModelTag(modelAssetName()))
+                                : null;
                         String url = profile != null ? profile.getAvatarUrl() : null;
-                        if (url != null && !url.isEmpty()) {
-                            fetchBitmapFromUrl(url, bmp -> {
-                                if (bmp != null) {
-                                    refBitmap = bmp;
-                                    ivPreview.setImageBitmap(bmp);
-                                    Toast.makeText(this, "已加载头像作为参考", Toast.LENGTH_SHORT).show();
-                                } else {
-                                    loadRefFromAssets();
-                                }
-                            });
-                        } else {
-                            loadRefFromAssets();
-                        }
-                    }))
+                        long key = template == null && url != null && !url.isEmpty() && profile.getUserId() != null
+                                ? EmbeddingCache.key(profile.getUserId(), profile.getUpdatedAt(),
+                                        templateModelTag(modelAssetName()))
+                                : 0L;
+                        float[] cached = key != 0L ? lookupReferenceEmbedding(key) : null;
+                        runOnUiThread(() -> {
+                            if (template != null) {
+                                refBitmap = null;
+                                refEmbedding = template;
+                                refCacheKey = 0L;
+                                Toast.makeText(this, "已加载人脸模板", Toast.LENGTH_SHORT).show();
+                            } else if (cached != null) {
+                                refBitmap = null;
+                                refEmbedding = cached;
+                                refCacheKey = key;
+                                Toast.makeText(this, "已加载缓存的人脸特征", Toast.LENGTH_SHORT).show();
+                            } else if (url != null && !url.isEmpty()) {
+                                fetchBitmapFromUrl(url, bmp -> {
+                                    if (bmp != null) {
+                                        refBitmap = bmp;
+                                        refEmbedding = null;
+                                        refCacheKey = key;
+                                        ivPreview.setImageBitmap(bmp);
+                                        prepareReferenceEmbedding(bmp, key);
+                                        Toast.makeText(this, "已加载头像作为参考", Toast.LENGTH_SHORT).show();
+                                    } else {
+                                        loadRefFromAssets();
+                                    }
+                                });
+                            } else {
+                                loadRefFromAssets();
+                            }
+                        });
+                    })
                     .exceptionally(t -> {
                         runOnUiThread(this::loadRefFromAssets);
                         return null;
@@ -177,26 +668,31 @@ public class FaceRecognitionActivity extends AppCompatActivity {
     private interface BitmapCallback { void onBitmap(Bitmap bmp); }
 
     private void fetchBitmapFromUrl(String url, BitmapCallback cb) {
-        new Thread(() -> {
-            Bitmap bmp = null;
-            java.net.HttpURLConnection conn = null;
-            try {
-                java.net.URL u = new java.net.URL(url);
-                conn = (java.net.HttpURLConnection) u.openConnection();
-                conn.setConnectTimeout(10000);
-                conn.setReadTimeout(10000);
-                conn.setRequestProperty("Accept", "image/*");
-                conn.connect();
-                try (java.io.InputStream is = conn.getInputStream()) {
-                    bmp = BitmapFactory.decodeStream(is);
+        // 头像与其余 Supabase 请求走同一连接池，可复用刚刚获取资料时建立的连接
+        okhttp3.Request request = new okhttp3.Request.Builder()
+                .url(url)
+                .addHeader("Accept", "image/*")
+                .get()
+                .build();
+        SupabaseHttp.client().newCall(request).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(okhttp3.Call call, java.io.IOException e) {
+                runOnUiThread(() -> cb.onBitmap(null));
+            }
+
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                Bitmap bmp = null;
+                try (okhttp3.Response r = response) {
+                    if (r.isSuccessful() && r.body() != null) {
+                        bmp = BitmapFactory.decodeStream(r.body().byteStream());
+                    }
+                } catch (Exception ignored) {
                 }
-            } catch (Exception ignored) {
-            } finally {
-                if (conn != null) conn.disconnect();
+                Bitmap finalBmp = bmp;
+                runOnUiThread(() -> cb.onBitmap(finalBmp));
             }
-            Bitmap finalBmp = bmp;
-            runOnUiThread(() -> cb.onBitmap(finalBmp));
-        }).start();
+        });
     }
 
     private void showSimilarityPopup(float sim) {
@@ -12,6 +12,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import java.lang.reflect.Method;
+import com.example.face.EmbedderPool;
 import com.example.iattend.backend.AuthService;
 import com.example.iattend.data.remote.SupabaseClient;
 import com.example.iattend.domain.model.AuthResult;
@@ -42,6 +43,9 @@ public class LoginActivity extends AppCompatActivity {
 
         logSignatureInfo();
 
+        // 后台预加载人脸模型，避免首次识别时加载耗时
+        EmbedderPool.warmUp(this, FaceRecognitionActivity.MODEL_ASSET_NAME);
+
         initViews();
         authService = new AuthService();
 
@@ -25,6 +25,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import android.view.View;
 import android.graphics.Color;
 import com.example.iattend.data.remote.SupabaseClient;
+import com.example.iattend.data.remote.SupabaseHttp;
 import com.example.iattend.data.remote.config.SupabaseConfig;
 import com.example.iattend.ui.ProgressArcView;
 import com.google.gson.Gson;
@@ -40,12 +41,10 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
-import okhttp3.logging.HttpLoggingInterceptor;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -93,16 +92,7 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        HttpLoggingInterceptor logging = new HttpLoggingInterceptor(s -> {
-            Log.d("HTTP", s);
-        });
-        logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-        httpClient = new OkHttpClient.Builder()
-                .addNetworkInterceptor(logging)
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        httpClient = SupabaseHttp.client();
 
         View mapContainer = findViewById(R.id.mapContainer);
         try {
@@ -17,6 +17,7 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.example.iattend.data.remote.SupabaseClient;
+import com.example.iattend.data.remote.SupabaseHttp;
 import com.google.gson.Gson;
 
 import java.lang.reflect.Constructor;
@@ -25,14 +26,12 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import okhttp3.logging.HttpLoggingInterceptor;
 
 public class MapActivity extends AppCompatActivity {
 
@@ -68,16 +67,7 @@ public class MapActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
 
 
-        HttpLoggingInterceptor logging = new HttpLoggingInterceptor(s -> {
-            Log.d("HTTP", s);
-        });
-        logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-        httpClient = new OkHttpClient.Builder()
-                .addNetworkInterceptor(logging)
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        httpClient = SupabaseHttp.client();
 
         lat = getIntent().getDoubleExtra("lat", 0);
         lon = getIntent().getDoubleExtra("lon", 0);
@@ -1,6 +1,9 @@
 package com.example.iattend;
 
 import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.animation.ObjectAnimator;
@@ -8,17 +11,27 @@ import android.animation.ValueAnimator;
 import androidx.core.content.ContextCompat;
 import android.view.View;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.face.EmbedderPool;
+import com.example.face.FaceRecognition;
+import com.example.face.FaceTemplate;
+import com.example.face.FlatFaceIndex;
+import com.example.face.GroupCheckIn;
+import com.example.face.TfLiteFaceEmbedder;
+import com.example.iattend.backend.utils.LogUtils;
 import com.example.iattend.data.remote.SupabaseClient;
+import com.example.iattend.data.remote.SupabaseHttp;
 import com.example.iattend.data.remote.config.SupabaseConfig;
 
 import com.google.gson.Gson;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.CompletableFuture;
 
 import okhttp3.OkHttpClient;
@@ -26,6 +39,9 @@ import okhttp3.Request;
 import okhttp3.Response;
 
 public class MonitorActivity extends AppCompatActivity {
+    private static final int REQ_GROUP_PHOTO = 4001;
+    // 合照解码上限：检测器内部还会再缩到 1600，保留余量给小脸的裁剪
+    private static final int GROUP_PHOTO_MAX_DIM = 2048;
     private TextView tvCourseTitle;
     private TextView tvCode;
     private TextView tvCountdown;
@@ -48,7 +64,8 @@ public class MonitorActivity extends AppCompatActivity {
     private String expiresAt;
     private java.util.List<String> selectedUserIds = new java.util.ArrayList<>();
     private java.util.List<com.example.iattend.data.remote.model.UserProfile> cachedProfiles = new java.util.ArrayList<>();
-    private final OkHttpClient httpClient = new OkHttpClient();
+    private boolean groupCheckInRunning = false;
+    private final OkHttpClient httpClient = SupabaseHttp.client();
     private final Gson gson = new Gson();
 
     @Override
@@ -86,6 +103,8 @@ public class MonitorActivity extends AppCompatActivity {
                 }))
                 .exceptionally(t -> { return null; });
 
+        findViewById(R.id.btnGroupCheckIn).setOnClickListener(v -> pickGroupPhoto());
+
         setupNavigationBar();
     }
 
@@ -126,6 +145,159 @@ public class MonitorActivity extends AppCompatActivity {
         tvPersonal.setSelected(false);
     }
 
+    private void pickGroupPhoto() {
+        if (groupCheckInRunning) return;
+        // 从相册选原图：相机缩略图分辨率太低，合照里的小脸无法识别
+        Intent intent = new Intent(Intent.ACTION_PICK, android.provider.MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
+        startActivityForResult(intent, REQ_GROUP_PHOTO);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQ_GROUP_PHOTO && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            runGroupCheckIn(data.getData());
+        }
+    }
+
+    /**
+     * 教师合照签到：一张照片 -> 检测所有人脸 -> 与已录入模板比对 -> 确认后批量写入签到记录。
+     * 解码和名单拉取在后台线程并行，模型加载与识别都在人脸库的推理线程上，主线程只负责弹窗
+     */
+    private void runGroupCheckIn(Uri photoUri) {
+        groupCheckInRunning = true;
+        Toast.makeText(this, getString(R.string.group_check_in_running), Toast.LENGTH_SHORT).show();
+        CompletableFuture<Bitmap> photo = CompletableFuture.supplyAsync(() -> decodeGroupPhoto(photoUri));
+        photo.thenCombine(SupabaseClient.getInstance().fetchFaceTemplates(), (bitmap, profiles) -> {
+                    identifyGroup(bitmap, profiles);
+                    return null;
+                })
+                .exceptionally(t -> {
+                    LogUtils.e("MonitorActivity", "Group check-in failed", t);
+                    onGroupCheckInFailed();
+                    return null;
+                });
+    }
+
+    private Bitmap decodeGroupPhoto(Uri uri) {
+        try {
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                BitmapFactory.decodeStream(in, null, bounds);
+            }
+            int sample = 1;
+            while (Math.max(bounds.outWidth, bounds.outHeight) / (sample * 2) >= GROUP_PHOTO_MAX_DIM) sample *= 2;
+            BitmapFactory.Options opts = new BitmapFactory.Options();
+            opts.inSampleSize = sample;
+            Bitmap bitmap;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                bitmap = BitmapFactory.decodeStream(in, null, opts);
+            }
+            if (bitmap == null) throw new IOException("无法解码合照: " + uri);
+            return bitmap;
+        } catch (IOException e) {
+            throw new RuntimeException("读取合照失败", e);
+        }
+    }
+
+    private void identifyGroup(Bitmap photo, java.util.List<com.example.iattend.data.remote.model.UserProfile> profiles) {
+        String modelTag = FaceRecognitionActivity.templateModelTag(FaceRecognitionActivity.MODEL_ASSET_NAME);
+        EmbedderPool.acquireAsync(this, FaceRecognitionActivity.MODEL_ASSET_NAME, new FaceRecognition.Callback<TfLiteFaceEmbedder>() {
+            @Override
+            public void onResult(TfLiteFaceEmbedder embedder) {
+                if (embedder.isPairwise()) {
+                    // 成对比较模型没有可检索的嵌入，无法做 1:N 识别
+                    EmbedderPool.release(embedder);
+                    onGroupCheckInFailed();
+                    return;
+                }
+                int dim = embedder.getEmbeddingSize();
+                FlatFaceIndex index = new FlatFaceIndex(dim);
+                java.util.Map<String, String> names = new java.util.HashMap<>();
+                for (com.example.iattend.data.remote.model.UserProfile p : profiles) {
+                    float[] template = FaceTemplate.decode(p.getFaceTemplate(), modelTag);
+                    if (p.getUserId() == null || template == null || template.length != dim) continue;
+                    index.put(p.getUserId(), template);
+                    names.put(p.getUserId(), p.getName() != null ? p.getName() : p.getUserId());
+                }
+                GroupCheckIn group = new GroupCheckIn(embedder, index,
+                        new FaceRecognition(embedder).setAlpha(13.9f).setCenter(0.30f),
+                        FaceRecognitionActivity.PASS_THRESHOLD);
+                group.identifyAsync(photo, new FaceRecognition.Callback<java.util.List<GroupCheckIn.Result>>() {
+                    @Override
+                    public void onResult(java.util.List<GroupCheckIn.Result> results) {
+                        group.shutdown();
+                        EmbedderPool.release(embedder);
+                        runOnUiThread(() -> showGroupResults(results, names));
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        group.shutdown();
+                        EmbedderPool.release(embedder);
+                        LogUtils.e("MonitorActivity", "Group identification failed", error);
+                        onGroupCheckInFailed();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                LogUtils.e("MonitorActivity", "Embedder load failed", error);
+                onGroupCheckInFailed();
+            }
+        });
+    }
+
+    private void showGroupResults(java.util.List<GroupCheckIn.Result> results, java.util.Map<String, String> names) {
+        groupCheckInRunning = false;
+        if (isFinishing() || isDestroyed()) return;
+        java.util.List<String> userIds = new java.util.ArrayList<>();
+        StringBuilder message = new StringBuilder();
+        int unmatched = 0;
+        for (GroupCheckIn.Result r : results) {
+            if (!r.isMatched()) { unmatched++; continue; }
+            userIds.add(r.id);
+            message.append(names.get(r.id)).append("  ").append(Math.round(r.score * 100)).append("%\n");
+        }
+        if (unmatched > 0) message.append(getString(R.string.group_check_in_unmatched, unmatched));
+        if (userIds.isEmpty()) {
+            new androidx.appcompat.app.AlertDialog.Builder(this)
+                    .setTitle(getString(R.string.group_check_in))
+                    .setMessage(getString(R.string.group_check_in_none))
+                    .setPositiveButton(getString(R.string.got_it), (d, w) -> d.dismiss())
+                    .show();
+            return;
+        }
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle(getString(R.string.group_check_in_result_title, userIds.size()))
+                .setMessage(message.toString().trim())
+                .setNegativeButton(getString(R.string.cancel), (d, w) -> d.dismiss())
+                .setPositiveButton(getString(R.string.confirm), (d, w) -> submitGroupCheckIn(userIds))
+                .show();
+    }
+
+    private void submitGroupCheckIn(java.util.List<String> userIds) {
+        SupabaseClient.getInstance().submitGroupCheckIn(code, userIds, System.currentTimeMillis())
+                .thenAccept(ok -> runOnUiThread(() -> {
+                    Toast.makeText(this, getString(R.string.group_check_in_submitted, userIds.size()), Toast.LENGTH_SHORT).show();
+                    loadSessionStats(code);
+                }))
+                .exceptionally(t -> {
+                    LogUtils.e("MonitorActivity", "Group check-in submit failed", t);
+                    onGroupCheckInFailed();
+                    return null;
+                });
+    }
+
+    private void onGroupCheckInFailed() {
+        runOnUiThread(() -> {
+            groupCheckInRunning = false;
+            Toast.makeText(this, getString(R.string.group_check_in_failed), Toast.LENGTH_SHORT).show();
+        });
+    }
+
     private void reOrderTasks(Intent intent) {
         intent.setFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT | Intent.FLAG_ACTIVITY_CLEAR_TOP);
     }
@@ -244,6 +244,7 @@ public class AuthService {
         user.setEmail(profile.getEmail());
         user.setUserClass(profile.getUserClass());
         user.setAvatarUrl(profile.getAvatarUrl());
+        user.setFaceTemplate(profile.getFaceTemplate());
 
         return user;
     }
@@ -258,6 +259,8 @@ public class AuthService {
         profile.setEmail(user.getEmail());
         profile.setUserClass(user.getUserClass());
         profile.setAvatarUrl(user.getAvatarUrl());
+        profile.setFaceTemplate(user.getFaceTemplate());
+        profile.setClearFaceTemplate(user.isClearFaceTemplate() && user.getFaceTemplate() == null);
 
         return profile;
     }
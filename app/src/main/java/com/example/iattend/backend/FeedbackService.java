@@ -1,6 +1,7 @@
 package com.example.iattend.backend;
 
 import com.example.iattend.data.remote.SupabaseClient;
+import com.example.iattend.data.remote.SupabaseHttp;
 import com.example.iattend.data.remote.SupabaseStorageClient;
 import com.example.iattend.data.remote.config.SupabaseConfig;
 import com.example.iattend.data.remote.model.Feedback;
@@ -51,11 +52,7 @@ public class FeedbackService {
         this.storageClient = SupabaseStorageClient.getInstance();
         this.supabaseClient = SupabaseClient.getInstance();
         this.gson = new Gson();
-        this.httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
-            .readTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
-            .writeTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
-            .build();
+        this.httpClient = SupabaseHttp.client();
     }
 
     /**
@@ -0,0 +1,271 @@
+package com.example.iattend.data.remote;
+
+import com.example.iattend.backend.utils.LogUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * 网络请求追踪器
+ * 记录每个请求的方法、路径模板、状态码、字节数和耗时，保存在固定大小的环形缓冲区中，
+ * 不读取、不缓存请求体和响应体。
+ *
+ * 路径模板会去掉 UUID、数字等变化部分，查询参数只保留参数名，
+ * 例如 /rest/v1/profiles?user_id=eq.xxx&select=... 记为 /rest/v1/profiles?user_id&select，
+ * 便于按接口聚合，也避免把用户ID、签到码写入日志。
+ *
+ * 关闭追踪后每个请求只多一次 volatile 读；也可按比例采样。
+ * 排查问题时可临时打开 {@link #setBodyLogging(boolean)}，恢复原来的完整报文日志。
+ */
+public final class NetworkTracer implements Interceptor {
+    private static final String TAG = "NetworkTracer";
+    private static final int CAPACITY = 256;
+    private static final Pattern UUID = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern DIGITS = Pattern.compile("\\d{4,}");
+
+    private static volatile NetworkTracer instance;
+
+    private volatile boolean enabled = true;
+    private volatile float sampleRate = 1f;
+    private final HttpLoggingInterceptor bodyLogging;
+
+    private final Trace[] ring = new Trace[CAPACITY];
+    private int next;
+    private long recorded;
+
+    /**
+     * 一次请求的记录
+     */
+    public static final class Trace {
+        public final long startedAtMs;
+        public final String method;
+        public final String pathTemplate;
+        /** HTTP 状态码，请求失败时为 -1 */
+        public final int status;
+        /** 请求体字节数，未知时为 -1 */
+        public final long requestBytes;
+        /** 实际读取的响应体字节数 */
+        public final long responseBytes;
+        /** 收到响应头的耗时 */
+        public final long headersMs;
+        /** 响应体读完或关闭时的总耗时 */
+        public final long totalMs;
+        /** 失败时的异常类型 */
+        public final String error;
+
+        Trace(long startedAtMs, String method, String pathTemplate, int status, long requestBytes,
+              long responseBytes, long headersMs, long totalMs, String error) {
+            this.startedAtMs = startedAtMs;
+            this.method = method;
+            this.pathTemplate = pathTemplate;
+            this.status = status;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.headersMs = headersMs;
+            this.totalMs = totalMs;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s %s -> %s req=%dB resp=%dB headers=%dms total=%dms",
+                    method, pathTemplate, error != null ? error : String.valueOf(status),
+                    requestBytes, responseBytes, headersMs, totalMs);
+        }
+    }
+
+    private NetworkTracer() {
+        bodyLogging = new HttpLoggingInterceptor(s -> LogUtils.d("HTTP", s));
+        bodyLogging.setLevel(HttpLoggingInterceptor.Level.NONE);
+    }
+
+    public static NetworkTracer getInstance() {
+        if (instance == null) {
+            synchronized (NetworkTracer.class) {
+                if (instance == null) {
+                    instance = new NetworkTracer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 采样比例，0 到 1 之间
+     */
+    public void setSampleRate(float sampleRate) {
+        this.sampleRate = Math.max(0f, Math.min(1f, sampleRate));
+    }
+
+    /**
+     * 打开后会缓存并输出完整的请求体和响应体，只应在调试时使用
+     */
+    public void setBodyLogging(boolean on) {
+        bodyLogging.setLevel(on ? HttpLoggingInterceptor.Level.BODY : HttpLoggingInterceptor.Level.NONE);
+    }
+
+    /**
+     * 报文日志拦截器，作为网络拦截器安装；默认级别为 NONE，此时直接放行
+     */
+    Interceptor bodyLoggingInterceptor() {
+        return bodyLogging;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!enabled) return chain.proceed(request);
+        float rate = sampleRate;
+        if (rate < 1f && ThreadLocalRandom.current().nextFloat() >= rate) return chain.proceed(request);
+
+        long startedAtMs = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long requestBytes = request.body() != null ? request.body().contentLength() : 0L;
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            long ms = (System.nanoTime() - start) / 1_000_000L;
+            record(new Trace(startedAtMs, request.method(), pathTemplate(request.url()), -1,
+                    requestBytes, 0L, ms, ms, e.getClass().getSimpleName()));
+            throw e;
+        }
+        long headersMs = (System.nanoTime() - start) / 1_000_000L;
+        ResponseBody body = response.body();
+        if (body == null) {
+            record(new Trace(startedAtMs, request.method(), pathTemplate(request.url()), response.code(),
+                    requestBytes, 0L, headersMs, headersMs, null));
+            return response;
+        }
+        TracedBody traced = new TracedBody(body, startedAtMs, start, request.method(), request.url(),
+                response.code(), requestBytes, headersMs);
+        return response.newBuilder().body(traced).build();
+    }
+
+    /**
+     * 最近的记录，按时间从旧到新
+     */
+    public synchronized List<Trace> snapshot() {
+        int size = (int) Math.min(recorded, CAPACITY);
+        List<Trace> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            out.add(ring[(next - size + i + CAPACITY) % CAPACITY]);
+        }
+        return out;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < CAPACITY; i++) ring[i] = null;
+        next = 0;
+        recorded = 0L;
+    }
+
+    /**
+     * 把缓冲区中的记录输出到日志
+     */
+    public void dumpToLog() {
+        List<Trace> traces = snapshot();
+        LogUtils.d(TAG, "最近 " + traces.size() + " 个请求:");
+        for (Trace t : traces) {
+            LogUtils.d(TAG, t.toString());
+        }
+    }
+
+    private synchronized void record(Trace trace) {
+        ring[next] = trace;
+        next = (next + 1) % CAPACITY;
+        recorded++;
+    }
+
+    static String pathTemplate(HttpUrl url) {
+        StringBuilder sb = new StringBuilder();
+        for (String segment : url.pathSegments()) {
+            sb.append('/').append(templateSegment(segment));
+        }
+        if (sb.length() == 0) sb.append('/');
+        int params = url.querySize();
+        for (int i = 0; i < params; i++) {
+            sb.append(i == 0 ? '?' : '&').append(url.queryParameterName(i));
+        }
+        return sb.toString();
+    }
+
+    private static String templateSegment(String segment) {
+        String s = UUID.matcher(segment).replaceAll("{id}");
+        return DIGITS.matcher(s).replaceAll("{n}");
+    }
+
+    /**
+     * 边读边计数的响应体，不做任何缓存；读完或关闭时写入一条记录
+     */
+    private final class TracedBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+        private long bytes;
+        private boolean done;
+
+        TracedBody(ResponseBody delegate, long startedAtMs, long start, String method, HttpUrl url,
+                   int status, long requestBytes, long headersMs) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long n = super.read(sink, byteCount);
+                    if (n == -1L) finish();
+                    else bytes += n;
+                    return n;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    finish();
+                    super.close();
+                }
+
+                private void finish() {
+                    if (done) return;
+                    done = true;
+                    long totalMs = (System.nanoTime() - start) / 1_000_000L;
+                    record(new Trace(startedAtMs, method, pathTemplate(url), status, requestBytes,
+                            bytes, headersMs, totalMs, null));
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
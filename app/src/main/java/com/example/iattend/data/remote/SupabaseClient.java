@@ -8,19 +8,19 @@ import com.example.iattend.data.remote.model.SignUpRequest;
 import com.example.iattend.data.remote.model.UserProfile;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import okhttp3.logging.HttpLoggingInterceptor;
 
 /**
  * Supabase API客户端
@@ -35,17 +35,8 @@ public class SupabaseClient {
     private AuthResponse.User currentUser;
 
     private SupabaseClient() {
-        // 配置HTTP客户端
-        HttpLoggingInterceptor logging = new HttpLoggingInterceptor(s -> {
-            Log.d("HTTP", s);
-        });
-        logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-        this.httpClient = new OkHttpClient.Builder()
-                .addNetworkInterceptor(logging)
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        // 使用共享的HTTP客户端
+        this.httpClient = SupabaseHttp.client();
 
         // 配置Gson
         this.gson = new GsonBuilder()
@@ -198,7 +189,12 @@ public class SupabaseClient {
             }
 
             try {
-                String jsonBody = gson.toJson(profile);
+                JsonObject json = gson.toJsonTree(profile).getAsJsonObject();
+                if (profile.isClearFaceTemplate()) {
+                    // 显式写入 null 清空旧模板；JsonElement.toString() 会保留 null 字段
+                    json.add("face_template", JsonNull.INSTANCE);
+                }
+                String jsonBody = json.toString();
                 RequestBody body = RequestBody.create(
                         jsonBody,
                         MediaType.get("application/json")
@@ -451,6 +447,66 @@ public class SupabaseClient {
         });
     }
 
+    /**
+     * 教师合照签到：为识别出的多名用户一次性写入签到记录（PostgREST 数组批量插入）。
+     * 由教师账号上报，不附带定位日志
+     */
+    public CompletableFuture<Boolean> submitGroupCheckIn(String sessionCode, java.util.List<String> userIds, long checkedAtMs) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (currentToken == null || currentUser == null) {
+                throw new RuntimeException("用户未登录");
+            }
+            if (userIds.isEmpty()) return true;
+            try {
+                String sessUrl = SupabaseConfig.REST_BASE_URL + "/" + SupabaseConfig.SESSIONS_TABLE + "?sign_in_code=eq." + sessionCode + "&select=session_id&limit=1";
+                Request reqSess = new Request.Builder().url(sessUrl).addHeader("apikey", SupabaseConfig.SUPABASE_KEY).addHeader("Authorization", "Bearer " + currentToken).addHeader("Accept", "application/json").get().build();
+                String sessionId = null;
+                try (Response resp = httpClient.newCall(reqSess).execute()) {
+                    String b = resp.body() != null ? resp.body().string() : "";
+                    if (resp.isSuccessful()) {
+                        SessionRow[] rows = gson.fromJson(b, SessionRow[].class);
+                        if (rows != null && rows.length > 0) sessionId = rows[0].session_id;
+                    }
+                }
+                if (sessionId == null) {
+                    throw new IOException("找不到对应的签到会话，签到码: " + sessionCode);
+                }
+
+                java.text.SimpleDateFormat fmt = new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", java.util.Locale.US);
+                fmt.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
+                String ts = fmt.format(new java.util.Date(checkedAtMs));
+
+                java.util.List<Map<String, Object>> records = new java.util.ArrayList<>(userIds.size());
+                for (String userId : userIds) {
+                    Map<String, Object> recData = new HashMap<>();
+                    recData.put("user_id", userId);
+                    recData.put("session_id", sessionId);
+                    recData.put("signed_in_at", ts);
+                    records.add(recData);
+                }
+                RequestBody bodyRec = RequestBody.create(gson.toJson(records), MediaType.get("application/json"));
+                Request reqRec = new Request.Builder()
+                        .url(SupabaseConfig.REST_BASE_URL + "/" + SupabaseConfig.SIGN_IN_RECORDS_TABLE)
+                        .addHeader("apikey", SupabaseConfig.SUPABASE_KEY)
+                        .addHeader("Authorization", "Bearer " + currentToken)
+                        .addHeader("Content-Type", "application/json")
+                        .addHeader("Prefer", "return=minimal")
+                        .post(bodyRec)
+                        .build();
+                try (Response r = httpClient.newCall(reqRec).execute()) {
+                    if (r.isSuccessful()) {
+                        return true;
+                    } else {
+                        String responseBody = r.body() != null ? r.body().string() : "";
+                        throw new IOException("合照签到上报失败: " + r.message() + " - " + responseBody);
+                    }
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("合照签到上报请求失败", e);
+            }
+        });
+    }
+
     private static class SessionRow { String session_id; String sign_in_code; Integer expected_count; String course_name; }
     private static class RecordRow { String user_id; Long signed_in_at; }
 
@@ -647,6 +703,31 @@ public class SupabaseClient {
         });
     }
 
+    /** 合照签到用的名单：只取已录入人脸模板的用户 */
+    public CompletableFuture<java.util.List<UserProfile>> fetchFaceTemplates() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                String url = SupabaseConfig.REST_BASE_URL + "/" + SupabaseConfig.PROFILES_TABLE + "?select=user_id,name,face_template&face_template=not.is.null";
+                Request.Builder builder = new Request.Builder().url(url).addHeader("apikey", SupabaseConfig.SUPABASE_KEY).addHeader("Accept", "application/json");
+                if (currentToken != null) builder.addHeader("Authorization", "Bearer " + currentToken);
+                Request request = builder.get().build();
+                try (Response response = httpClient.newCall(request).execute()) {
+                    String body = response.body() != null ? response.body().string() : "";
+                    if (response.isSuccessful()) {
+                        UserProfile[] arr = gson.fromJson(body, UserProfile[].class);
+                        java.util.List<UserProfile> list = new java.util.ArrayList<>();
+                        if (arr != null) for (UserProfile u : arr) if (u != null && u.getFaceTemplate() != null) list.add(u);
+                        return list;
+                    } else {
+                        throw new IOException("获取人脸模板失败: " + response.message());
+                    }
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("获取人脸模板请求失败", e);
+            }
+        });
+    }
+
     public CompletableFuture<java.util.List<UserProfile>> fetchAllProfiles() {
         return CompletableFuture.supplyAsync(() -> {
             try {
@@ -0,0 +1,63 @@
+package com.example.iattend.data.remote;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * 全局共享的 HTTP 传输层
+ * 所有 Supabase 请求（认证、REST、Storage）以及头像下载都经由同一个 OkHttpClient，
+ * 共用连接池和调度器：同一主机只握手一次，HTTP/2 下多个请求复用同一条连接，
+ * 例如签到时可直接复用查询签到码时建立的连接。
+ *
+ * 需要不同超时等配置的调用方应使用 {@code client().newBuilder()}，这样仍共享连接池和调度器。
+ * 请求记录见 {@link NetworkTracer}，默认不输出报文内容。
+ */
+public final class SupabaseHttp {
+    private static final int TIMEOUT_SECONDS = 30;
+    // 空闲连接保留时间需长于签到流程中两次请求的间隔
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5L;
+    private static final int MAX_REQUESTS_PER_HOST = 10;
+
+    private static volatile OkHttpClient client;
+
+    private SupabaseHttp() {
+    }
+
+    public static OkHttpClient client() {
+        OkHttpClient c = client;
+        if (c == null) {
+            synchronized (SupabaseHttp.class) {
+                c = client;
+                if (c == null) {
+                    c = build();
+                    client = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    private static OkHttpClient build() {
+        Dispatcher dispatcher = new Dispatcher();
+        // 默认每个主机最多 5 个并发请求；全部请求都发往同一个 Supabase 主机，适当放宽
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        NetworkTracer tracer = NetworkTracer.getInstance();
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .addInterceptor(tracer)
+                .addNetworkInterceptor(tracer.bodyLoggingInterceptor())
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+}
@@ -12,7 +12,6 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import okhttp3.logging.HttpLoggingInterceptor;
 
 /**
  * Supabase Storage 客户端
@@ -32,9 +31,7 @@ public class SupabaseStorageClient {
     private final OkHttpClient httpClient;
 
     private SupabaseStorageClient() {
-        this.httpClient = new OkHttpClient.Builder()
-                .addInterceptor(new HttpLoggingInterceptor())
-                .build();
+        this.httpClient = SupabaseHttp.client();
     }
 
     public static SupabaseStorageClient getInstance() {
@@ -22,6 +22,14 @@ public class UserProfile {
     @SerializedName("avatar_url")
     private String avatarUrl;
 
+    // 多帧注册得到的人脸模板（float16 + base64），验证时直接使用，无需下载头像再提取特征
+    @SerializedName("face_template")
+    private String faceTemplate;
+
+    // Gson 默认省略 null 字段，PATCH 时 faceTemplate 为 null 不会改动服务端的旧模板；
+    // 需要清空时置为 true，由 SupabaseClient 显式写入 "face_template": null。不参与序列化
+    private transient boolean clearFaceTemplate;
+
     @SerializedName("updated_at")
     private String updatedAt;
 
@@ -75,6 +83,22 @@ public class UserProfile {
         this.avatarUrl = avatarUrl;
     }
 
+    public String getFaceTemplate() {
+        return faceTemplate;
+    }
+
+    public void setFaceTemplate(String faceTemplate) {
+        this.faceTemplate = faceTemplate;
+    }
+
+    public boolean isClearFaceTemplate() {
+        return clearFaceTemplate;
+    }
+
+    public void setClearFaceTemplate(boolean clearFaceTemplate) {
+        this.clearFaceTemplate = clearFaceTemplate;
+    }
+
     public String getUpdatedAt() {
         return updatedAt;
     }
@@ -91,6 +115,7 @@ public class UserProfile {
                 ", email='" + email + '\'' +
                 ", userClass='" + userClass + '\'' +
                 ", avatarUrl='" + avatarUrl + '\'' +
+                ", faceTemplate=" + (faceTemplate != null ? faceTemplate.length() + " chars" : "null") +
                 ", updatedAt='" + updatedAt + '\'' +
                 '}';
     }
@@ -10,6 +10,9 @@ public class User {
     private String email;
     private String userClass;
     private String avatarUrl;
+    private String faceTemplate;
+    // 为 true 且 faceTemplate 为 null 时，更新资料会显式清空服务端的人脸模板
+    private boolean clearFaceTemplate;
     private boolean isEmailVerified;
 
     public User() {}
@@ -62,6 +65,22 @@ public class User {
         this.avatarUrl = avatarUrl;
     }
 
+    public String getFaceTemplate() {
+        return faceTemplate;
+    }
+
+    public void setFaceTemplate(String faceTemplate) {
+        this.faceTemplate = faceTemplate;
+    }
+
+    public boolean isClearFaceTemplate() {
+        return clearFaceTemplate;
+    }
+
+    public void setClearFaceTemplate(boolean clearFaceTemplate) {
+        this.clearFaceTemplate = clearFaceTemplate;
+    }
+
     public boolean isEmailVerified() {
         return isEmailVerified;
     }
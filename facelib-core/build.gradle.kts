@@ -0,0 +1,39 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+// ./gradlew :facelib-core:jmh  (add -Pjmh.includes=<regex> to run a subset)
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    findProperty("jmh.includes")?.let { includes.set(listOf(it.toString())) }
+}
+
+// ./gradlew :facelib-core:annRecall [--args="<roster> <queries> <k>"]
+tasks.register<JavaExec>("annRecall") {
+    group = "verification"
+    description = "Prints HNSW recall and latency against the exact flat scan."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.example.face.AnnRecallReport")
+}
+
+// ./gradlew :facelib-core:quantAccuracy [--args="<roster> <queries> <k>"]
+tasks.register<JavaExec>("quantAccuracy") {
+    group = "verification"
+    description = "Prints int8 and PQ search recall and cosine error against the float flat scan."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.example.face.QuantizationAccuracyReport")
+}
@@ -0,0 +1,115 @@
+package com.example.face;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Recall@k of {@link HnswFaceIndex} against the exact {@link FlatFaceIndex} scan on synthetic 128-d
+ * embeddings, swept over M and efSearch, with per-query latency for each setting. Latency here is
+ * single-shot wall clock after a warm-up pass; {@link RosterSearchBenchmark} has the JMH numbers.
+ * {@code top1} is how often the best match agrees with the exact scan, which is what identification
+ * needs. Uniform random vectors have no cluster structure, so the rest of the top-k is nearly
+ * equidistant and recall@k here is a pessimistic bound for real embeddings.
+ *
+ * <p>{@code ./gradlew :facelib-core:annRecall [--args="<roster> <queries> <k>"]}
+ */
+public final class AnnRecallReport {
+    private static final int DIM = 128;
+    private static final int[] M = {8, 16, 32};
+    private static final int[] EF_SEARCH = {16, 32, 64, 128, 256};
+    private static final int EF_CONSTRUCTION = 200;
+
+    private AnnRecallReport() {}
+
+    public static void main(String[] args) {
+        int roster = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Random random = new Random(11);
+        float[][] identities = new float[roster][];
+        FlatFaceIndex flat = new FlatFaceIndex(DIM, roster);
+        for (int i = 0; i < roster; i++) {
+            identities[i] = BenchmarkData.unitVector(random, DIM);
+            flat.put("user-" + i, identities[i]);
+        }
+        float[][] probes = new float[queries][];
+        for (int i = 0; i < queries; i++) {
+            probes[i] = BenchmarkData.noisy(random, identities[random.nextInt(roster)], 0.05f);
+        }
+
+        Set<String>[] truth = groundTruth(flat, probes, k);
+        String[] best = new String[queries];
+        for (int i = 0; i < queries; i++) best[i] = flat.search(probes[i], 1)[0].id;
+        double[] flatLatency = latencyMicros(flat, probes, k);
+        System.out.printf(Locale.US, "roster=%d queries=%d k=%d dim=%d%n", roster, queries, k, DIM);
+        System.out.printf(Locale.US, "%-6s %-4s %-8s %-10s %-8s %-10s %-10s %s%n",
+                "index", "M", "efSearch", "recall@" + k, "top1", "mean_us", "p99_us", "build_ms");
+        System.out.printf(Locale.US, "%-6s %-4s %-8s %-10.4f %-8.4f %-10.1f %-10.1f %s%n",
+                "flat", "-", "-", 1.0, 1.0, flatLatency[0], flatLatency[1], "-");
+
+        for (int m : M) {
+            long t = System.nanoTime();
+            HnswFaceIndex hnsw = new HnswFaceIndex(DIM, m, EF_CONSTRUCTION, EF_SEARCH[0], 42L);
+            for (int i = 0; i < roster; i++) hnsw.put("user-" + i, identities[i]);
+            long buildMs = (System.nanoTime() - t) / 1_000_000L;
+            for (int ef : EF_SEARCH) {
+                hnsw.setEfSearch(ef);
+                double recall = recall(hnsw, probes, truth, k);
+                double top1 = topOneAgreement(hnsw, probes, best);
+                double[] latency = latencyMicros(hnsw, probes, k);
+                System.out.printf(Locale.US, "%-6s %-4d %-8d %-10.4f %-8.4f %-10.1f %-10.1f %d%n",
+                        "hnsw", m, ef, recall, top1, latency[0], latency[1], buildMs);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Set<String>[] groundTruth(FaceIndex exact, float[][] probes, int k) {
+        Set<String>[] truth = new Set[probes.length];
+        for (int i = 0; i < probes.length; i++) {
+            truth[i] = new HashSet<>();
+            for (FaceMatch match : exact.search(probes[i], k)) truth[i].add(match.id);
+        }
+        return truth;
+    }
+
+    /** Fraction of the exact top-k found by {@code index}, averaged over the probes. */
+    static double recall(FaceIndex index, float[][] probes, Set<String>[] truth, int k) {
+        long hits = 0;
+        for (int i = 0; i < probes.length; i++) {
+            for (FaceMatch match : index.search(probes[i], k)) {
+                if (truth[i].contains(match.id)) hits++;
+            }
+        }
+        return (double) hits / ((long) probes.length * k);
+    }
+
+    static double topOneAgreement(FaceIndex index, float[][] probes, String[] best) {
+        int agree = 0;
+        for (int i = 0; i < probes.length; i++) {
+            FaceMatch[] top = index.search(probes[i], 1);
+            if (top.length > 0 && top[0].id.equals(best[i])) agree++;
+        }
+        return (double) agree / probes.length;
+    }
+
+    /** {mean, p99} per-query latency in microseconds, measured after one warm-up pass. */
+    static double[] latencyMicros(FaceIndex index, float[][] probes, int k) {
+        for (float[] probe : probes) index.search(probe, k);
+        long[] samples = new long[probes.length];
+        long total = 0;
+        for (int i = 0; i < probes.length; i++) {
+            long t = System.nanoTime();
+            index.search(probes[i], k);
+            samples[i] = System.nanoTime() - t;
+            total += samples[i];
+        }
+        Arrays.sort(samples);
+        int p99 = Math.min(samples.length - 1, (int) Math.ceil(samples.length * 0.99) - 1);
+        return new double[]{total / 1000.0 / probes.length, samples[p99] / 1000.0};
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.face;
+
+import java.util.Random;
+
+/** Deterministic synthetic inputs shared by the benchmarks. */
+final class BenchmarkData {
+    private BenchmarkData() {}
+
+    static float[] unitVector(Random random, int dim) {
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) v[i] = (float) random.nextGaussian();
+        VectorMath.normalizeL2(v);
+        return v;
+    }
+
+    /** A noisy view of {@code identity}, as a second photo of the same person would embed. */
+    static float[] noisy(Random random, float[] identity, float noise) {
+        float[] v = new float[identity.length];
+        for (int i = 0; i < v.length; i++) v[i] = identity[i] + noise * (float) random.nextGaussian();
+        VectorMath.normalizeL2(v);
+        return v;
+    }
+
+    /** A smooth gradient with some texture, so resampling kernels touch realistic values. */
+    static int[] argbImage(Random random, int width, int height) {
+        int[] px = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(16)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(16)) & 0xFF;
+                px[y * width + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return px;
+    }
+
+    static byte[] nv21(Random random, int width, int height) {
+        byte[] data = new byte[width * height * 3 / 2];
+        random.nextBytes(data);
+        return data;
+    }
+
+    /** A frontal face of {@code size} pixels centered at (cx, cy) with BlazeFace-style eye landmarks. */
+    static FaceBox face(float cx, float cy, float size) {
+        float h = size / 2f;
+        float eye = size * 0.21f;
+        float[] lm = {cx - eye, cy - size * 0.12f, cx + eye, cy - size * 0.12f};
+        return new FaceBox(cx - h, cy - h, cx + h, cy + h, 0.95f, lm);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.face;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU side of detection: BlazeFace anchor decoding with weighted NMS on synthetic model output,
+ * and the quality gate that runs on every streamed face before embedding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DetectionBenchmark {
+    private static final int INPUT = 128;
+
+    /** Faces in the synthetic output; each is hit by a cluster of overlapping anchors, as the model does. */
+    @Param({"1", "8"})
+    int faces;
+
+    private BlazeFaceDecoder decoder;
+    private float[] regressors;
+    private float[] scores;
+    private final List<FaceBox> out = new ArrayList<>();
+    private FaceQualityGate gate;
+    private YuvFrame frame;
+    private int[] argb;
+    private FaceBox face;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(4);
+        decoder = new BlazeFaceDecoder(INPUT);
+        int n = decoder.getNumAnchors();
+        float[] anchors = BlazeFaceDecoder.anchors(INPUT, new int[]{8, 16, 16, 16}, 2);
+        regressors = new float[n * BlazeFaceDecoder.NUM_COORDS];
+        scores = new float[n];
+        Arrays.fill(scores, -8f);
+        for (int f = 0; f < faces; f++) {
+            float cx = 0.15f + 0.7f * random.nextFloat();
+            float cy = 0.15f + 0.7f * random.nextFloat();
+            float size = 0.08f + 0.1f * random.nextFloat();
+            for (int a = 0; a < n; a++) {
+                float dx = cx - anchors[2 * a];
+                float dy = cy - anchors[2 * a + 1];
+                if (Math.abs(dx) > size / 2f || Math.abs(dy) > size / 2f) continue;
+                scores[a] = 2f + random.nextFloat();
+                int r = a * BlazeFaceDecoder.NUM_COORDS;
+                regressors[r] = dx * INPUT;
+                regressors[r + 1] = dy * INPUT;
+                regressors[r + 2] = size * INPUT;
+                regressors[r + 3] = size * INPUT;
+                for (int p = 0; p < BlazeFaceDecoder.NUM_KEYPOINTS; p++) {
+                    regressors[r + 4 + 2 * p] = (dx + (p % 2 == 0 ? -0.2f : 0.2f) * size) * INPUT;
+                    regressors[r + 5 + 2 * p] = (dy - 0.1f * size) * INPUT;
+                }
+            }
+        }
+        gate = new FaceQualityGate();
+        frame = YuvFrame.nv21(BenchmarkData.nv21(random, 640, 480), 640, 480, 270);
+        argb = BenchmarkData.argbImage(random, 480, 640);
+        face = BenchmarkData.face(240f, 300f, 220f);
+    }
+
+    @Benchmark
+    public List<FaceBox> decodeAndNms() {
+        out.clear();
+        decoder.decode(regressors, scores, 16, 0f, 0f, 640f, 640f, out);
+        return out;
+    }
+
+    @Benchmark
+    public FaceQualityGate.Result qualityGateYuv() {
+        return gate.check(frame, face);
+    }
+
+    @Benchmark
+    public FaceQualityGate.Result qualityGateArgb() {
+        return gate.check(argb, 480, 640, face);
+    }
+}
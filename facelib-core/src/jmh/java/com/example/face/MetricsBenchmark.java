@@ -0,0 +1,54 @@
+package com.example.face;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/** Cost of a timed stage with metrics off (the default) and on, and of contended histogram writes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+    private FaceMetrics metrics;
+    /** Non-final, like the embedder's field, so the null check is not folded away. */
+    private FaceMetrics disabled;
+    private LatencyHistogram histogram;
+
+    @State(Scope.Thread)
+    public static class Values {
+        long next;
+    }
+
+    @Setup
+    public void setUp() {
+        metrics = new FaceMetrics();
+        histogram = new LatencyHistogram();
+    }
+
+    @Benchmark
+    public long stageDisabled() {
+        long t = FaceMetrics.start(disabled);
+        FaceMetrics.stop(disabled, FaceMetrics.Stage.INFERENCE, t);
+        return t;
+    }
+
+    @Benchmark
+    public long stageEnabled() {
+        long t = FaceMetrics.start(metrics);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.INFERENCE, t);
+        return t;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void histogramRecordContended(Values v) {
+        histogram.record((v.next += 7919) & 0xFFFFFF);
+    }
+}
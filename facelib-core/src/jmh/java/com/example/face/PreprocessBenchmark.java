@@ -0,0 +1,86 @@
+package com.example.face;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One 112x112 face tensor from a 640x480 camera image, per input path. Run with {@code -prof gc}
+ * to confirm the kernels allocate nothing per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PreprocessBenchmark {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int INPUT = 112;
+
+    private int[] argb;
+    private YuvFrame frame;
+    private FaceBox face;
+    private final float[] matrix = new float[6];
+    private final float[] tensor = new float[INPUT * INPUT * 3];
+    private final int[] preview = new int[320 * 240];
+    private TensorQuantization quantization;
+    private ByteBuffer quantized;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(2);
+        argb = BenchmarkData.argbImage(random, WIDTH, HEIGHT);
+        // Front camera preview as delivered: landscape sensor buffer, 270 degrees to upright.
+        frame = YuvFrame.nv21(BenchmarkData.nv21(random, WIDTH, HEIGHT), WIDTH, HEIGHT, 270);
+        face = BenchmarkData.face(240f, 300f, 220f);
+        quantization = TensorQuantization.forPixels(false);
+        quantized = ByteBuffer.allocateDirect(tensor.length).order(ByteOrder.nativeOrder());
+    }
+
+    /** Box crop, bilinear resize and normalization fused in one pass. */
+    @Benchmark
+    public float[] cropResizeNormalize() {
+        ImageKernels.cropResizeNormalize(argb, WIDTH, HEIGHT, face.left, face.top, face.width(), face.height(),
+                false, INPUT, INPUT, tensor, 0);
+        return tensor;
+    }
+
+    /** Eye-landmark similarity transform straight into the tensor. */
+    @Benchmark
+    public float[] alignedWarp() {
+        FaceAlignment.estimate(face, INPUT, INPUT, matrix);
+        ImageKernels.warpAffineNormalize(argb, WIDTH, HEIGHT, matrix, false, INPUT, INPUT, tensor, 0);
+        return tensor;
+    }
+
+    /** Aligned warp reading NV21 directly, including rotation to upright. */
+    @Benchmark
+    public float[] yuvAlignedWarp() {
+        FaceAlignment.estimate(face, INPUT, INPUT, matrix);
+        YuvKernels.warpAffineNormalize(frame, matrix, false, INPUT, INPUT, tensor, 0);
+        return tensor;
+    }
+
+    /** Downscaled upright ARGB preview that feeds face detection for streamed frames. */
+    @Benchmark
+    public int[] yuvToDetectionPreview() {
+        YuvKernels.toArgb(frame, 240, 320, preview);
+        return preview;
+    }
+
+    /** Upload of a staged tensor to a uint8 model input. */
+    @Benchmark
+    public ByteBuffer quantizeUint8() {
+        quantized.clear();
+        quantization.quantize(tensor, 0, tensor.length, quantized);
+        return quantized;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.face;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Accuracy of the compressed roster encodings against the float {@link FlatFaceIndex}: recall@k and
+ * top-1 agreement of {@link QuantizedFaceIndex} searches, and the distribution of
+ * {@code |cos_quantized - cos_float|} for genuine pairs (a probe against the identity it was drawn
+ * from, where the threshold decision happens) and impostor pairs (a probe against a random row).
+ * Bytes per vector and per-query latency are printed alongside; {@link RosterSearchBenchmark} has the
+ * JMH numbers. Like {@link AnnRecallReport} this uses uniform random embeddings, which have no
+ * cluster structure for PQ codebooks to exploit, so the PQ rows are a pessimistic bound.
+ *
+ * <p>{@code ./gradlew :facelib-core:quantAccuracy [--args="<roster> <queries> <k>"]}
+ */
+public final class QuantizationAccuracyReport {
+    private static final int DIM = 128;
+    private static final int[] PQ_SUBSPACES = {16, 32, 64};
+    private static final int PQ_ITERATIONS = 10;
+    private static final float PROBE_NOISE = 0.05f;
+
+    private QuantizationAccuracyReport() {}
+
+    /** Scores a normalized probe against stored row {@code row} in one encoding. */
+    private interface Scorer {
+        void prepare(float[] probe);
+
+        float score(int row);
+    }
+
+    public static void main(String[] args) {
+        int roster = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Random random = new Random(13);
+        float[] data = new float[roster * DIM];
+        FlatFaceIndex flat = new FlatFaceIndex(DIM, roster);
+        for (int i = 0; i < roster; i++) {
+            float[] v = BenchmarkData.unitVector(random, DIM);
+            System.arraycopy(v, 0, data, i * DIM, DIM);
+            flat.put("user-" + i, v);
+        }
+        float[][] probes = new float[queries][];
+        int[] genuine = new int[queries];
+        int[] impostor = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            genuine[i] = random.nextInt(roster);
+            impostor[i] = random.nextInt(roster);
+            probes[i] = BenchmarkData.noisy(random, Arrays.copyOfRange(data, genuine[i] * DIM,
+                    (genuine[i] + 1) * DIM), PROBE_NOISE);
+        }
+
+        Set<String>[] truth = AnnRecallReport.groundTruth(flat, probes, k);
+        String[] best = new String[queries];
+        for (int i = 0; i < queries; i++) best[i] = flat.search(probes[i], 1)[0].id;
+        double[] flatLatency = AnnRecallReport.latencyMicros(flat, probes, k);
+
+        System.out.printf(Locale.US, "roster=%d queries=%d k=%d dim=%d%n", roster, queries, k, DIM);
+        System.out.printf(Locale.US, "%-6s %-6s %-10s %-8s %-24s %-24s %-10s %s%n",
+                "index", "bytes", "recall@" + k, "top1", "genuine_err mean/p99/max",
+                "impostor_err mean/p99/max", "mean_us", "p99_us");
+        System.out.printf(Locale.US, "%-6s %-6d %-10.4f %-8.4f %-24s %-24s %-10.1f %.1f%n",
+                "float", DIM * 4, 1.0, 1.0, "-", "-", flatLatency[0], flatLatency[1]);
+
+        QuantizedFaceIndex int8 = new QuantizedFaceIndex(DIM);
+        fill(int8, data, roster);
+        report("int8", int8, int8Scorer(data, roster), data, probes, genuine, impostor, truth, best, k);
+
+        for (int subspaces : PQ_SUBSPACES) {
+            ProductQuantizer pq = ProductQuantizer.train(data, roster, DIM, subspaces, PQ_ITERATIONS, 7L);
+            QuantizedFaceIndex index = new QuantizedFaceIndex(pq);
+            fill(index, data, roster);
+            report("pq" + subspaces, index, pqScorer(pq, data, roster), data, probes, genuine, impostor,
+                    truth, best, k);
+        }
+    }
+
+    private static void fill(FaceIndex index, float[] data, int roster) {
+        for (int i = 0; i < roster; i++) index.put("user-" + i, Arrays.copyOfRange(data, i * DIM, (i + 1) * DIM));
+    }
+
+    private static void report(String name, QuantizedFaceIndex index, Scorer scorer, float[] data,
+                               float[][] probes, int[] genuine, int[] impostor, Set<String>[] truth,
+                               String[] best, int k) {
+        double recall = AnnRecallReport.recall(index, probes, truth, k);
+        double top1 = AnnRecallReport.topOneAgreement(index, probes, best);
+        double[] genuineErr = cosineError(scorer, data, probes, genuine);
+        double[] impostorErr = cosineError(scorer, data, probes, impostor);
+        double[] latency = AnnRecallReport.latencyMicros(index, probes, k);
+        System.out.printf(Locale.US, "%-6s %-6d %-10.4f %-8.4f %-24s %-24s %-10.1f %.1f%n",
+                name, index.bytesPerVector(), recall, top1, format(genuineErr), format(impostorErr),
+                latency[0], latency[1]);
+    }
+
+    /** {mean, p99, max} of |approximate - exact| cosine over the (probe, row) pairs. */
+    private static double[] cosineError(Scorer scorer, float[] data, float[][] probes, int[] rows) {
+        double[] err = new double[probes.length];
+        double total = 0;
+        for (int i = 0; i < probes.length; i++) {
+            scorer.prepare(probes[i]);
+            float exact = FlatFaceIndex.dot(probes[i], 0, data, rows[i] * DIM, DIM);
+            err[i] = Math.abs(scorer.score(rows[i]) - exact);
+            total += err[i];
+        }
+        Arrays.sort(err);
+        int p99 = Math.min(err.length - 1, (int) Math.ceil(err.length * 0.99) - 1);
+        return new double[]{total / err.length, err[p99], err[err.length - 1]};
+    }
+
+    private static String format(double[] err) {
+        return String.format(Locale.US, "%.4f/%.4f/%.4f", err[0], err[1], err[2]);
+    }
+
+    private static Scorer int8Scorer(float[] data, int roster) {
+        final byte[] codes = new byte[roster * DIM];
+        final float[] scales = new float[roster];
+        for (int i = 0; i < roster; i++) scales[i] = Int8Quantizer.quantize(data, i * DIM, DIM, codes, i * DIM);
+        return new Scorer() {
+            private float[] probe;
+
+            @Override
+            public void prepare(float[] probe) {
+                this.probe = probe;
+            }
+
+            @Override
+            public float score(int row) {
+                return Int8Quantizer.dot(probe, 0, codes, row * DIM, scales[row], DIM);
+            }
+        };
+    }
+
+    private static Scorer pqScorer(final ProductQuantizer pq, float[] data, int roster) {
+        final int codeSize = pq.codeSize();
+        final byte[] codes = new byte[roster * codeSize];
+        for (int i = 0; i < roster; i++) pq.encode(data, i * DIM, codes, i * codeSize);
+        final float[] table = new float[codeSize * ProductQuantizer.CENTROIDS];
+        return new Scorer() {
+            @Override
+            public void prepare(float[] probe) {
+                pq.distanceTable(probe, 0, table);
+            }
+
+            @Override
+            public float score(int row) {
+                return pq.score(table, codes, row * codeSize);
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.face;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-5 identification of a noisy probe against rosters of enrolled 128-d templates. {@code m} and
+ * {@code efSearch} only apply to the HNSW index; {@link AnnRecallReport} sweeps them for recall.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RosterSearchBenchmark {
+    private static final int DIM = 128;
+    private static final int PROBES = 64;
+
+    @Param({"50", "500", "5000"})
+    int roster;
+
+    @Param({"flat", "hnsw", "int8", "pq32"})
+    String index;
+
+    @Param({"16"})
+    int m;
+
+    @Param({"64"})
+    int efSearch;
+
+    private FaceIndex faceIndex;
+    private float[][] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(3);
+        float[][] identities = new float[roster][];
+        float[] packed = new float[roster * DIM];
+        for (int i = 0; i < roster; i++) {
+            identities[i] = BenchmarkData.unitVector(random, DIM);
+            System.arraycopy(identities[i], 0, packed, i * DIM, DIM);
+        }
+        faceIndex = newIndex(packed);
+        for (int i = 0; i < roster; i++) faceIndex.put("user-" + i, identities[i]);
+        probes = new float[PROBES][];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = BenchmarkData.noisy(random, identities[random.nextInt(roster)], 0.05f);
+        }
+    }
+
+    private FaceIndex newIndex(float[] training) {
+        switch (index) {
+            case "flat":
+                return new FlatFaceIndex(DIM, roster);
+            case "hnsw":
+                return new HnswFaceIndex(DIM, m, 200, efSearch, 42L);
+            case "int8":
+                return new QuantizedFaceIndex(DIM);
+            case "pq32":
+                return new QuantizedFaceIndex(ProductQuantizer.train(training, roster, DIM, 32, 10, 7L));
+            default:
+                throw new IllegalArgumentException(index);
+        }
+    }
+
+    @Benchmark
+    public FaceMatch[] searchTop5() {
+        float[] probe = probes[next];
+        next = (next + 1) % PROBES;
+        return faceIndex.search(probe, 5);
+    }
+}
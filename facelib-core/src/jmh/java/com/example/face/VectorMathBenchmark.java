@@ -0,0 +1,71 @@
+package com.example.face;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VectorMathBenchmark {
+    @Param({"128", "512"})
+    int dim;
+
+    private float[] a;
+    private float[] b;
+    private float[] packed;
+    private float[] scratch;
+    private byte[] codes;
+    private float codeScale;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        a = BenchmarkData.unitVector(random, dim);
+        b = BenchmarkData.noisy(random, a, 0.3f);
+        packed = new float[2 * dim];
+        System.arraycopy(a, 0, packed, 0, dim);
+        System.arraycopy(b, 0, packed, dim, dim);
+        scratch = new float[dim];
+        codes = new byte[dim];
+        codeScale = Int8Quantizer.quantize(b, 0, dim, codes, 0);
+    }
+
+    @Benchmark
+    public float cosine() {
+        return VectorMath.cosine(a, b);
+    }
+
+    @Benchmark
+    public float euclidean() {
+        return VectorMath.euclidean(a, b);
+    }
+
+    @Benchmark
+    public float[] normalizeL2() {
+        System.arraycopy(b, 0, scratch, 0, dim);
+        VectorMath.normalizeL2(scratch);
+        return scratch;
+    }
+
+    /** The flip-TTA merge: average the two views, renormalize, score. */
+    @Benchmark
+    public float averageAndScore() {
+        float[] e = VectorMath.average(packed, 0, dim, dim);
+        VectorMath.normalizeL2(e);
+        return VectorMath.sigmoid(13.9f * (VectorMath.cosine(a, e) - 0.30f));
+    }
+
+    @Benchmark
+    public float int8Dot() {
+        return Int8Quantizer.dot(a, 0, codes, 0, codeScale, dim);
+    }
+}
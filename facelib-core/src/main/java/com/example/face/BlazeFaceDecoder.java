@@ -0,0 +1,187 @@
+package com.example.face;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class BlazeFaceDecoder {
+    public static final int NUM_KEYPOINTS = 6;
+    public static final int NUM_COORDS = 4 + 2 * NUM_KEYPOINTS;
+    private static final int[] FRONT_STRIDES = {8, 16, 16, 16};
+    private static final int ANCHORS_PER_LAYER = 2;
+    private static final float SCORE_CLIP = 100f;
+
+    private final int inputSize;
+    private final float[] anchors;
+    private final int numAnchors;
+    private float minScore = 0.5f;
+    private float iouThreshold = 0.3f;
+
+    private long[] sortKeys;
+    private int[] candidates;
+    private float[] candScores;
+    private float[] candBoxes;
+    private boolean[] consumed;
+    private final float[] accum = new float[NUM_COORDS];
+
+    public BlazeFaceDecoder(int inputSize) {
+        this(inputSize, FRONT_STRIDES);
+    }
+
+    public BlazeFaceDecoder(int inputSize, int[] strides) {
+        this.inputSize = inputSize;
+        this.anchors = anchors(inputSize, strides, ANCHORS_PER_LAYER);
+        this.numAnchors = anchors.length / 2;
+        this.sortKeys = new long[numAnchors];
+        this.candidates = new int[numAnchors];
+        this.candScores = new float[numAnchors];
+        this.candBoxes = new float[numAnchors * 4];
+        this.consumed = new boolean[numAnchors];
+    }
+
+    public int getNumAnchors() {
+        return numAnchors;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public BlazeFaceDecoder setMinScore(float minScore) {
+        this.minScore = minScore;
+        return this;
+    }
+
+    public BlazeFaceDecoder setIouThreshold(float iouThreshold) {
+        this.iouThreshold = iouThreshold;
+        return this;
+    }
+
+    /**
+     * Decodes raw model outputs into boxes, mapping normalized coordinates back to the source image
+     * as {@code x * scaleX + offsetX}. Overlapping detections are merged by score-weighted NMS.
+     */
+    public synchronized int decode(float[] regressors, float[] scores, int maxFaces,
+                                   float offsetX, float offsetY, float scaleX, float scaleY, List<FaceBox> out) {
+        float logitMin = logit(minScore);
+        int n = 0;
+        for (int i = 0; i < numAnchors; i++) {
+            float s = scores[i];
+            if (s < logitMin) continue;
+            float p = sigmoid(Math.max(-SCORE_CLIP, Math.min(SCORE_CLIP, s)));
+            sortKeys[n++] = ((long) Float.floatToIntBits(p) << 32) | i;
+        }
+        if (n == 0) return 0;
+        Arrays.sort(sortKeys, 0, n);
+        for (int k = 0; k < n; k++) {
+            long key = sortKeys[n - 1 - k];
+            int a = (int) key;
+            candidates[k] = a;
+            candScores[k] = Float.intBitsToFloat((int) (key >>> 32));
+            int r = a * NUM_COORDS;
+            float cx = regressors[r] / inputSize + anchors[2 * a];
+            float cy = regressors[r + 1] / inputSize + anchors[2 * a + 1];
+            float hw = regressors[r + 2] / inputSize * 0.5f;
+            float hh = regressors[r + 3] / inputSize * 0.5f;
+            int b = k * 4;
+            candBoxes[b] = cx - hw;
+            candBoxes[b + 1] = cy - hh;
+            candBoxes[b + 2] = cx + hw;
+            candBoxes[b + 3] = cy + hh;
+            consumed[k] = false;
+        }
+        int found = 0;
+        for (int k = 0; k < n && found < maxFaces; k++) {
+            if (consumed[k]) continue;
+            Arrays.fill(accum, 0f);
+            float total = 0f;
+            for (int j = k; j < n; j++) {
+                if (consumed[j] || (j != k && iou(k, j) <= iouThreshold)) continue;
+                consumed[j] = true;
+                float w = candScores[j];
+                total += w;
+                int b = j * 4;
+                accum[0] += candBoxes[b] * w;
+                accum[1] += candBoxes[b + 1] * w;
+                accum[2] += candBoxes[b + 2] * w;
+                accum[3] += candBoxes[b + 3] * w;
+                int a = candidates[j];
+                int r = a * NUM_COORDS + 4;
+                for (int p = 0; p < NUM_KEYPOINTS; p++) {
+                    accum[4 + 2 * p] += (regressors[r + 2 * p] / inputSize + anchors[2 * a]) * w;
+                    accum[5 + 2 * p] += (regressors[r + 2 * p + 1] / inputSize + anchors[2 * a + 1]) * w;
+                }
+            }
+            float inv = 1f / total;
+            float[] landmarks = new float[2 * NUM_KEYPOINTS];
+            for (int p = 0; p < NUM_KEYPOINTS; p++) {
+                landmarks[2 * p] = accum[4 + 2 * p] * inv * scaleX + offsetX;
+                landmarks[2 * p + 1] = accum[5 + 2 * p] * inv * scaleY + offsetY;
+            }
+            out.add(new FaceBox(accum[0] * inv * scaleX + offsetX, accum[1] * inv * scaleY + offsetY,
+                    accum[2] * inv * scaleX + offsetX, accum[3] * inv * scaleY + offsetY,
+                    candScores[k], landmarks));
+            found++;
+        }
+        return found;
+    }
+
+    static float[] anchors(int inputSize, int[] strides, int anchorsPerLayer) {
+        int total = 0;
+        for (int l = 0; l < strides.length; ) {
+            int stride = strides[l];
+            int layers = 0;
+            while (l < strides.length && strides[l] == stride) {
+                layers++;
+                l++;
+            }
+            int grid = (inputSize + stride - 1) / stride;
+            total += grid * grid * layers * anchorsPerLayer;
+        }
+        float[] out = new float[total * 2];
+        int o = 0;
+        for (int l = 0; l < strides.length; ) {
+            int stride = strides[l];
+            int layers = 0;
+            while (l < strides.length && strides[l] == stride) {
+                layers++;
+                l++;
+            }
+            int grid = (inputSize + stride - 1) / stride;
+            int perCell = layers * anchorsPerLayer;
+            for (int y = 0; y < grid; y++) {
+                float cy = (y + 0.5f) / grid;
+                for (int x = 0; x < grid; x++) {
+                    float cx = (x + 0.5f) / grid;
+                    for (int a = 0; a < perCell; a++) {
+                        out[o++] = cx;
+                        out[o++] = cy;
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private float iou(int a, int b) {
+        int i = a * 4;
+        int j = b * 4;
+        float ix = Math.min(candBoxes[i + 2], candBoxes[j + 2]) - Math.max(candBoxes[i], candBoxes[j]);
+        float iy = Math.min(candBoxes[i + 3], candBoxes[j + 3]) - Math.max(candBoxes[i + 1], candBoxes[j + 1]);
+        if (ix <= 0f || iy <= 0f) return 0f;
+        float inter = ix * iy;
+        float areaA = (candBoxes[i + 2] - candBoxes[i]) * (candBoxes[i + 3] - candBoxes[i + 1]);
+        float areaB = (candBoxes[j + 2] - candBoxes[j]) * (candBoxes[j + 3] - candBoxes[j + 1]);
+        float union = areaA + areaB - inter;
+        return union > 0f ? inter / union : 0f;
+    }
+
+    private static float sigmoid(float x) {
+        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+
+    private static float logit(float p) {
+        if (p <= 0f) return Float.NEGATIVE_INFINITY;
+        if (p >= 1f) return Float.POSITIVE_INFINITY;
+        return (float) Math.log(p / (1.0 - p));
+    }
+}
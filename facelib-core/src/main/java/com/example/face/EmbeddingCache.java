@@ -0,0 +1,122 @@
+package com.example.face;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+public class EmbeddingCache {
+    private static final int MAGIC = 0x46454d42;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_DIM = 8;
+    private static final int OFF_CAPACITY = 12;
+    private static final int OFF_COUNT = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MappedByteBuffer map;
+    private final int dim;
+    private final int capacity;
+    private final int recordBytes;
+
+    private EmbeddingCache(MappedByteBuffer map, int dim, int capacity) {
+        this.map = map;
+        this.dim = dim;
+        this.capacity = capacity;
+        this.recordBytes = 8 + 4 * dim;
+    }
+
+    public static EmbeddingCache open(File file, int dim, int capacity) throws IOException {
+        if (dim <= 0 || capacity <= 0) throw new IllegalArgumentException("dim and capacity must be positive");
+        long size = HEADER_BYTES + (long) capacity * (8 + 4L * dim);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            boolean fresh = raf.length() != size;
+            if (fresh) raf.setLength(size);
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            EmbeddingCache cache = new EmbeddingCache(map, dim, capacity);
+            if (fresh || map.getInt(OFF_MAGIC) != MAGIC || map.getInt(OFF_VERSION) != VERSION
+                    || map.getInt(OFF_DIM) != dim || map.getInt(OFF_CAPACITY) != capacity) {
+                cache.clear();
+            }
+            return cache;
+        } finally {
+            raf.close();
+        }
+    }
+
+    public static long key(String userId, String profileVersion, String modelId) {
+        long h = 0xcbf29ce484222325L;
+        h = fnv(h, userId);
+        h = fnv(h, profileVersion);
+        h = fnv(h, modelId);
+        return h == 0L ? 1L : h;
+    }
+
+    public int getDimension() {
+        return dim;
+    }
+
+    public synchronized boolean get(long key, float[] out) {
+        int slot = find(key);
+        if (slot < 0) return false;
+        int base = HEADER_BYTES + slot * recordBytes + 8;
+        for (int i = 0; i < dim; i++) out[i] = map.getFloat(base + 4 * i);
+        return true;
+    }
+
+    public synchronized void put(long key, float[] embedding) {
+        if (embedding.length != dim) throw new IllegalArgumentException("dimension mismatch");
+        int slot = find(key);
+        if (slot < 0) {
+            if ((map.getInt(OFF_COUNT) + 1) * 4 > capacity * 3) {
+                clear();
+                slot = find(key);
+            }
+            slot = -slot - 1;
+            map.putInt(OFF_COUNT, map.getInt(OFF_COUNT) + 1);
+        }
+        int rec = HEADER_BYTES + slot * recordBytes;
+        for (int i = 0; i < dim; i++) map.putFloat(rec + 8 + 4 * i, embedding[i]);
+        map.putLong(rec, key);
+        map.force();
+    }
+
+    public synchronized void clear() {
+        for (int slot = 0; slot < capacity; slot++) map.putLong(HEADER_BYTES + slot * recordBytes, 0L);
+        map.putInt(OFF_MAGIC, MAGIC);
+        map.putInt(OFF_VERSION, VERSION);
+        map.putInt(OFF_DIM, dim);
+        map.putInt(OFF_CAPACITY, capacity);
+        map.putInt(OFF_COUNT, 0);
+        map.force();
+    }
+
+    private int find(long key) {
+        int slot = (int) ((key ^ (key >>> 32)) & 0x7fffffff) % capacity;
+        for (int probe = 0; probe < capacity; probe++) {
+            long k = map.getLong(HEADER_BYTES + slot * recordBytes);
+            if (k == key) return slot;
+            if (k == 0L) return -slot - 1;
+            slot = slot + 1 == capacity ? 0 : slot + 1;
+        }
+        return -capacity - 1;
+    }
+
+    private static long fnv(long h, String s) {
+        byte[] bytes = (s != null ? s : "").getBytes(UTF_8);
+        for (byte b : bytes) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= 0xff;
+        h *= 0x100000001b3L;
+        return h;
+    }
+}
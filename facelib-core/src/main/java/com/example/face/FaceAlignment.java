@@ -0,0 +1,76 @@
+package com.example.face;
+
+public final class FaceAlignment {
+    /** ArcFace reference eye positions for a 112x112 crop, image-left eye first. */
+    public static final float[] TEMPLATE_112 = {38.2946f, 51.6963f, 73.5318f, 51.5014f};
+    private static final float TEMPLATE_SIZE = 112f;
+
+    private FaceAlignment() {}
+
+    /**
+     * Fills {@code m} with the similarity transform mapping output pixel coordinates to source
+     * coordinates ({@code sx = m[0]*x + m[1]*y + m[2]}, {@code sy = m[3]*x + m[4]*y + m[5]}) so that
+     * the detected eyes land on the template. Returns false if the box has no usable eye landmarks.
+     */
+    public static boolean estimate(FaceBox box, int outWidth, int outHeight, float[] m) {
+        if (!box.hasEyes()) return false;
+        float ax = box.landmarkX(FaceBox.RIGHT_EYE);
+        float ay = box.landmarkY(FaceBox.RIGHT_EYE);
+        float bx = box.landmarkX(FaceBox.LEFT_EYE);
+        float by = box.landmarkY(FaceBox.LEFT_EYE);
+        if (ax > bx) {
+            float tx = ax, ty = ay;
+            ax = bx;
+            ay = by;
+            bx = tx;
+            by = ty;
+        }
+        float kx = outWidth / TEMPLATE_SIZE;
+        float ky = outHeight / TEMPLATE_SIZE;
+        return estimate(TEMPLATE_112[0] * kx, TEMPLATE_112[1] * ky, TEMPLATE_112[2] * kx, TEMPLATE_112[3] * ky,
+                ax, ay, bx, by, m);
+    }
+
+    /** Similarity transform taking (p1, p2) in output space onto (q1, q2) in source space. */
+    public static boolean estimate(float p1x, float p1y, float p2x, float p2y,
+                                   float q1x, float q1y, float q2x, float q2y, float[] m) {
+        float dpx = p2x - p1x;
+        float dpy = p2y - p1y;
+        float dqx = q2x - q1x;
+        float dqy = q2y - q1y;
+        float norm = dpx * dpx + dpy * dpy;
+        if (norm < 1e-6f || dqx * dqx + dqy * dqy < 1f) return false;
+        float a = (dqx * dpx + dqy * dpy) / norm;
+        float b = (dqy * dpx - dqx * dpy) / norm;
+        m[0] = a;
+        m[1] = -b;
+        m[2] = q1x - (a * p1x - b * p1y);
+        m[3] = b;
+        m[4] = a;
+        m[5] = q1y - (b * p1x + a * p1y);
+        return true;
+    }
+
+    /**
+     * Source-space bounding box {left, top, right, bottom} of an output window under {@code m},
+     * padded by one pixel for bilinear taps and clamped to the image.
+     */
+    public static void sourceBounds(float[] m, int outWidth, int outHeight, int imageWidth, int imageHeight, int[] out) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < 4; c++) {
+            float x = (c & 1) == 0 ? 0f : outWidth;
+            float y = (c & 2) == 0 ? 0f : outHeight;
+            float sx = m[0] * x + m[1] * y + m[2];
+            float sy = m[3] * x + m[4] * y + m[5];
+            minX = Math.min(minX, sx);
+            minY = Math.min(minY, sy);
+            maxX = Math.max(maxX, sx);
+            maxY = Math.max(maxY, sy);
+        }
+        out[0] = Math.max(0, (int) Math.floor(minX) - 1);
+        out[1] = Math.max(0, (int) Math.floor(minY) - 1);
+        out[2] = Math.min(imageWidth, (int) Math.ceil(maxX) + 1);
+        out[3] = Math.min(imageHeight, (int) Math.ceil(maxY) + 1);
+    }
+}
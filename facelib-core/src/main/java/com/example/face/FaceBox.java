@@ -0,0 +1,92 @@
+package com.example.face;
+
+public final class FaceBox {
+    public static final int RIGHT_EYE = 0;
+    public static final int LEFT_EYE = 1;
+
+    public final float left;
+    public final float top;
+    public final float right;
+    public final float bottom;
+    public final float score;
+    private final float[] landmarks;
+    private final boolean measuredLandmarks;
+
+    public FaceBox(float left, float top, float right, float bottom, float score, float[] landmarks) {
+        this(left, top, right, bottom, score, landmarks, true);
+    }
+
+    /**
+     * {@code measuredLandmarks} is false when the landmarks were synthesized rather than located,
+     * e.g. level eyes placed from a detector's midpoint and eye distance.
+     */
+    public FaceBox(float left, float top, float right, float bottom, float score, float[] landmarks,
+                   boolean measuredLandmarks) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.score = score;
+        this.landmarks = landmarks != null ? landmarks : new float[0];
+        this.measuredLandmarks = measuredLandmarks;
+    }
+
+    public float width() {
+        return right - left;
+    }
+
+    public float height() {
+        return bottom - top;
+    }
+
+    public int landmarkCount() {
+        return landmarks.length / 2;
+    }
+
+    public float landmarkX(int i) {
+        return landmarks[2 * i];
+    }
+
+    public float landmarkY(int i) {
+        return landmarks[2 * i + 1];
+    }
+
+    public boolean hasEyes() {
+        return landmarkCount() > LEFT_EYE;
+    }
+
+    /** Whether the landmarks were located by the detector and so carry pose; see the constructor. */
+    public boolean hasMeasuredLandmarks() {
+        return measuredLandmarks && landmarks.length > 0;
+    }
+
+    public float eyeDistance() {
+        if (!hasEyes()) return 0f;
+        float dx = landmarkX(LEFT_EYE) - landmarkX(RIGHT_EYE);
+        float dy = landmarkY(LEFT_EYE) - landmarkY(RIGHT_EYE);
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public FaceBox mirrored(float imageWidth) {
+        float[] lm = new float[landmarks.length];
+        for (int i = 0; i < lm.length; i += 2) {
+            lm[i] = imageWidth - landmarks[i];
+            lm[i + 1] = landmarks[i + 1];
+        }
+        return new FaceBox(imageWidth - right, top, imageWidth - left, bottom, score, lm, measuredLandmarks);
+    }
+
+    public FaceBox scaled(float sx, float sy) {
+        float[] lm = new float[landmarks.length];
+        for (int i = 0; i < lm.length; i += 2) {
+            lm[i] = landmarks[i] * sx;
+            lm[i + 1] = landmarks[i + 1] * sy;
+        }
+        return new FaceBox(left * sx, top * sy, right * sx, bottom * sy, score, lm, measuredLandmarks);
+    }
+
+    @Override
+    public String toString() {
+        return "FaceBox{" + left + ", " + top + ", " + right + ", " + bottom + ", score=" + score + '}';
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.face;
+
+public interface FaceIndex {
+    void put(String id, float[] embedding);
+
+    boolean remove(String id);
+
+    int size();
+
+    int dimension();
+
+    FaceMatch[] search(float[] probe, int k);
+}
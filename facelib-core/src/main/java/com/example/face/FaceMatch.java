@@ -0,0 +1,16 @@
+package com.example.face;
+
+public final class FaceMatch {
+    public final String id;
+    public final float score;
+
+    public FaceMatch(String id, float score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    @Override
+    public String toString() {
+        return "FaceMatch{id='" + id + "', score=" + score + '}';
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.face;
+
+/**
+ * Opt-in per-stage latency recording for the face pipeline. Components hold a nullable reference
+ * and skip all timing when it is null, so leaving metrics off costs one null check per stage.
+ */
+public final class FaceMetrics {
+    public enum Stage {
+        DECODE, DETECT, CROP_RESIZE, NORMALIZE, INFERENCE, POSTPROCESS;
+
+        final String key = name().toLowerCase(java.util.Locale.US);
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    public FaceMetrics() {
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram.Snapshot snapshot(Stage stage) {
+        return histograms[stage.ordinal()].snapshot();
+    }
+
+    public void reset() {
+        for (LatencyHistogram h : histograms) h.reset();
+    }
+
+    /** {@code {"decode":{"count":..,"meanUs":..,"p50Us":..,...},...}} for every stage. */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Stage s : Stage.values()) {
+            if (s.ordinal() > 0) sb.append(',');
+            sb.append('"').append(s.key).append("\":");
+            histograms[s.ordinal()].snapshot().appendJson(sb);
+        }
+        return sb.append('}').toString();
+    }
+
+    static long start(FaceMetrics m) {
+        return m != null ? System.nanoTime() : 0L;
+    }
+
+    static void stop(FaceMetrics m, Stage stage, long startNanos) {
+        if (m != null) m.histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+}
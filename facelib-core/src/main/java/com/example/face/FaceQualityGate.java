@@ -0,0 +1,275 @@
+package com.example.face;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cheap pre-embedding checks on a detected face: size, pose from the eye landmarks, and mean
+ * brightness plus Laplacian-variance sharpness on a small luma patch. Pose is only judged when the
+ * detector located the eyes ({@link FaceBox#hasMeasuredLandmarks()}); synthesized level eyes would
+ * always read as frontal. Thread-safe; counters and per-stage timings are kept lock-free so they can
+ * be read while frames are being processed, and each thread samples into its own reused patch.
+ */
+public class FaceQualityGate {
+    public enum Rejection { NONE, NO_FACE, TOO_SMALL, POSE, TOO_DARK, TOO_BRIGHT, BLURRY }
+
+    public static final int STAGE_GEOMETRY = 0;
+    public static final int STAGE_LUMA = 1;
+    public static final int STAGE_BRIGHTNESS = 2;
+    public static final int STAGE_SHARPNESS = 3;
+    private static final String[] STAGE_NAMES = {"geometry", "luma", "brightness", "sharpness"};
+    private static final int PATCH = 64;
+
+    private float minEyeDistance = 20f;
+    private float maxRollDegrees = 25f;
+    private float maxYawDegrees = 35f;
+    private float frontalEyeRatio = 0.42f;
+    private float minBrightness = 40f;
+    private float maxBrightness = 220f;
+    private float minSharpness = 25f;
+
+    private final AtomicLongArray stageNanos = new AtomicLongArray(STAGE_NAMES.length);
+    private final AtomicLongArray stageCalls = new AtomicLongArray(STAGE_NAMES.length);
+    private final AtomicLongArray outcomes = new AtomicLongArray(Rejection.values().length);
+    private final ThreadLocal<float[]> patches = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[PATCH * PATCH];
+        }
+    };
+
+    public FaceQualityGate setMinEyeDistance(float px) {
+        this.minEyeDistance = px;
+        return this;
+    }
+
+    public FaceQualityGate setMaxRoll(float degrees) {
+        this.maxRollDegrees = degrees;
+        return this;
+    }
+
+    /**
+     * Yaw is estimated from how much the eye distance shrinks relative to the box width, with
+     * {@code frontalEyeRatio} the eye-distance / box-width ratio of a frontal face for the detector.
+     */
+    public FaceQualityGate setMaxYaw(float degrees, float frontalEyeRatio) {
+        this.maxYawDegrees = degrees;
+        this.frontalEyeRatio = frontalEyeRatio;
+        return this;
+    }
+
+    public FaceQualityGate setBrightnessRange(float min, float max) {
+        this.minBrightness = min;
+        this.maxBrightness = max;
+        return this;
+    }
+
+    public FaceQualityGate setMinSharpness(float laplacianVariance) {
+        this.minSharpness = laplacianVariance;
+        return this;
+    }
+
+    /** Checks a face in upright frame coordinates, reading luma straight from the Y plane. */
+    public Result check(YuvFrame frame, FaceBox face) {
+        if (face == null) return record(new Result(Rejection.NO_FACE, 0f, 0f, 0f, 0f, 0f));
+        Result geometry = geometry(face);
+        if (!geometry.passed()) return record(geometry);
+        long t = System.nanoTime();
+        float[] patch = patches.get();
+        float r0 = YuvKernels.sensor(frame, 0), r1 = YuvKernels.sensor(frame, 1), r2 = YuvKernels.sensor(frame, 2);
+        float r3 = YuvKernels.sensor(frame, 3), r4 = YuvKernels.sensor(frame, 4), r5 = YuvKernels.sensor(frame, 5);
+        float kx = face.width() / PATCH;
+        float ky = face.height() / PATCH;
+        int maxX = frame.width - 1;
+        int maxY = frame.height - 1;
+        for (int py = 0, o = 0; py < PATCH; py++) {
+            float uy = face.top + (py + 0.5f) * ky;
+            for (int px = 0; px < PATCH; px++) {
+                float ux = face.left + (px + 0.5f) * kx;
+                int sx = clamp((int) (r0 * ux + r1 * uy + r2), maxX);
+                int sy = clamp((int) (r3 * ux + r4 * uy + r5), maxY);
+                patch[o++] = frame.y[frame.yOffset + sy * frame.yRowStride + sx] & 0xFF;
+            }
+        }
+        stage(STAGE_LUMA, t);
+        return record(photometric(geometry, patch));
+    }
+
+    /** Checks a face on ARGB pixels, e.g. from {@code Bitmap.getPixels}. */
+    public Result check(int[] argb, int width, int height, FaceBox face) {
+        if (face == null) return record(new Result(Rejection.NO_FACE, 0f, 0f, 0f, 0f, 0f));
+        Result geometry = geometry(face);
+        if (!geometry.passed()) return record(geometry);
+        long t = System.nanoTime();
+        float[] patch = patches.get();
+        float kx = face.width() / PATCH;
+        float ky = face.height() / PATCH;
+        for (int py = 0, o = 0; py < PATCH; py++) {
+            int sy = clamp((int) (face.top + (py + 0.5f) * ky), height - 1);
+            for (int px = 0; px < PATCH; px++) {
+                int sx = clamp((int) (face.left + (px + 0.5f) * kx), width - 1);
+                int p = argb[sy * width + sx];
+                patch[o++] = 0.299f * ((p >> 16) & 0xFF) + 0.587f * ((p >> 8) & 0xFF) + 0.114f * (p & 0xFF);
+            }
+        }
+        stage(STAGE_LUMA, t);
+        return record(photometric(geometry, patch));
+    }
+
+    public Snapshot snapshot() {
+        long[] nanos = new long[STAGE_NAMES.length];
+        long[] calls = new long[STAGE_NAMES.length];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = stageNanos.get(i);
+            calls[i] = stageCalls.get(i);
+        }
+        long[] counts = new long[outcomes.length()];
+        for (int i = 0; i < counts.length; i++) counts[i] = outcomes.get(i);
+        return new Snapshot(nanos, calls, counts);
+    }
+
+    public void resetStats() {
+        for (int i = 0; i < STAGE_NAMES.length; i++) {
+            stageNanos.set(i, 0L);
+            stageCalls.set(i, 0L);
+        }
+        for (int i = 0; i < outcomes.length(); i++) outcomes.set(i, 0L);
+    }
+
+    private Result geometry(FaceBox face) {
+        long t = System.nanoTime();
+        float eyes = face.eyeDistance();
+        float roll = 0f;
+        float yaw = 0f;
+        Rejection r = Rejection.NONE;
+        if (face.hasEyes()) {
+            if (face.hasMeasuredLandmarks()) {
+                float dx = Math.abs(face.landmarkX(FaceBox.LEFT_EYE) - face.landmarkX(FaceBox.RIGHT_EYE));
+                float dy = face.landmarkY(FaceBox.LEFT_EYE) - face.landmarkY(FaceBox.RIGHT_EYE);
+                roll = (float) Math.toDegrees(Math.atan2(Math.abs(dy), dx));
+                float ratio = face.width() > 0f ? eyes / (frontalEyeRatio * face.width()) : 1f;
+                yaw = (float) Math.toDegrees(Math.acos(Math.min(1f, ratio)));
+            }
+            if (eyes < minEyeDistance) r = Rejection.TOO_SMALL;
+            else if (roll > maxRollDegrees || yaw > maxYawDegrees) r = Rejection.POSE;
+        } else if (face.width() < minEyeDistance * 2.4f) {
+            r = Rejection.TOO_SMALL;
+        }
+        stage(STAGE_GEOMETRY, t);
+        return new Result(r, eyes, roll, yaw, 0f, 0f);
+    }
+
+    private Result photometric(Result geometry, float[] patch) {
+        float eyes = geometry.eyeDistance;
+        float roll = geometry.rollDegrees;
+        float yaw = geometry.yawDegrees;
+        long t = System.nanoTime();
+        float sum = 0f;
+        for (float v : patch) sum += v;
+        float mean = sum / patch.length;
+        stage(STAGE_BRIGHTNESS, t);
+        if (mean < minBrightness) return new Result(Rejection.TOO_DARK, eyes, roll, yaw, mean, 0f);
+        if (mean > maxBrightness) return new Result(Rejection.TOO_BRIGHT, eyes, roll, yaw, mean, 0f);
+        t = System.nanoTime();
+        float sharpness = laplacianVariance(patch, PATCH, PATCH);
+        stage(STAGE_SHARPNESS, t);
+        return new Result(sharpness < minSharpness ? Rejection.BLURRY : Rejection.NONE, eyes, roll, yaw, mean, sharpness);
+    }
+
+    static float laplacianVariance(float[] luma, int width, int height) {
+        double sum = 0.0;
+        double sumSq = 0.0;
+        int n = 0;
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                float lap = luma[i - 1] + luma[i + 1] + luma[i - width] + luma[i + width] - 4f * luma[i];
+                sum += lap;
+                sumSq += lap * lap;
+                n++;
+            }
+        }
+        if (n == 0) return 0f;
+        double mean = sum / n;
+        return (float) (sumSq / n - mean * mean);
+    }
+
+    private void stage(int stage, long startNanos) {
+        stageNanos.addAndGet(stage, System.nanoTime() - startNanos);
+        stageCalls.incrementAndGet(stage);
+    }
+
+    private Result record(Result r) {
+        outcomes.incrementAndGet(r.rejection.ordinal());
+        return r;
+    }
+
+    private static int clamp(int v, int max) {
+        return v < 0 ? 0 : (v > max ? max : v);
+    }
+
+    public static final class Result {
+        public final Rejection rejection;
+        public final float eyeDistance;
+        public final float rollDegrees;
+        public final float yawDegrees;
+        public final float brightness;
+        public final float sharpness;
+
+        Result(Rejection rejection, float eyeDistance, float rollDegrees, float yawDegrees,
+               float brightness, float sharpness) {
+            this.rejection = rejection;
+            this.eyeDistance = eyeDistance;
+            this.rollDegrees = rollDegrees;
+            this.yawDegrees = yawDegrees;
+            this.brightness = brightness;
+            this.sharpness = sharpness;
+        }
+
+        public boolean passed() {
+            return rejection == Rejection.NONE;
+        }
+    }
+
+    public static final class Snapshot {
+        private final long[] stageNanos;
+        private final long[] stageCalls;
+        private final long[] outcomes;
+
+        Snapshot(long[] stageNanos, long[] stageCalls, long[] outcomes) {
+            this.stageNanos = stageNanos;
+            this.stageCalls = stageCalls;
+            this.outcomes = outcomes;
+        }
+
+        public long count(Rejection r) {
+            return outcomes[r.ordinal()];
+        }
+
+        public long passed() {
+            return outcomes[Rejection.NONE.ordinal()];
+        }
+
+        public long rejected() {
+            long n = 0;
+            for (int i = 0; i < outcomes.length; i++) if (i != Rejection.NONE.ordinal()) n += outcomes[i];
+            return n;
+        }
+
+        /** Mean wall time of a stage in microseconds, or 0 if it never ran. */
+        public double meanMicros(int stage) {
+            return stageCalls[stage] == 0 ? 0.0 : stageNanos[stage] / 1000.0 / stageCalls[stage];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("FaceQualityGate{");
+            for (Rejection r : Rejection.values()) sb.append(r.name().toLowerCase()).append('=').append(count(r)).append(", ");
+            for (int i = 0; i < STAGE_NAMES.length; i++) {
+                sb.append(STAGE_NAMES[i]).append("Us=").append(String.format(java.util.Locale.US, "%.1f", meanMicros(i)));
+                if (i < STAGE_NAMES.length - 1) sb.append(", ");
+            }
+            return sb.append('}').toString();
+        }
+    }
+}
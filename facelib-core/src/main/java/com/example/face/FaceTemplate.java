@@ -0,0 +1,138 @@
+package com.example.face;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Compact text form of an enrolled embedding for storing on a profile row: a 7-byte header (format
+ * version, dimension, hash of the model tag) followed by float16 components, base64 encoded. A 128-d
+ * template is 263 bytes, 352 characters. Decoding returns null for another model, so a template from
+ * an old model is never compared against embeddings from a new one.
+ */
+public final class FaceTemplate {
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 7;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] DECODE = new int[128];
+
+    static {
+        java.util.Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) DECODE[ALPHABET[i]] = i;
+    }
+
+    private FaceTemplate() {}
+
+    /** {@code modelTag} identifies the model and preprocessing that produced the embedding. */
+    public static String encode(float[] embedding, String modelTag) {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_BYTES + 2 * embedding.length).order(ByteOrder.LITTLE_ENDIAN);
+        b.put((byte) VERSION);
+        b.putShort((short) embedding.length);
+        b.putInt(tagHash(modelTag));
+        for (float v : embedding) b.putShort(toHalf(v));
+        return base64(b.array());
+    }
+
+    /** The L2-normalized embedding, or null if the text is malformed or was made by another model. */
+    public static float[] decode(String encoded, String modelTag) {
+        if (encoded == null || encoded.isEmpty()) return null;
+        byte[] bytes = unbase64(encoded);
+        if (bytes == null || bytes.length < HEADER_BYTES) return null;
+        ByteBuffer b = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (b.get() != VERSION) return null;
+        int dim = b.getShort() & 0xFFFF;
+        if (b.getInt() != tagHash(modelTag) || bytes.length != HEADER_BYTES + 2 * dim) return null;
+        float[] e = new float[dim];
+        for (int i = 0; i < dim; i++) e[i] = fromHalf(b.getShort());
+        VectorMath.normalizeL2(e);
+        return e;
+    }
+
+    /** Element-wise mean of several embeddings of one person, renormalized. */
+    public static float[] average(float[][] embeddings) {
+        float[] mean = new float[embeddings[0].length];
+        for (float[] e : embeddings) {
+            for (int i = 0; i < mean.length; i++) mean[i] += e[i];
+        }
+        VectorMath.normalizeL2(mean);
+        return mean;
+    }
+
+    static short toHalf(float f) {
+        int bits = Float.floatToIntBits(f);
+        int sign = (bits >>> 16) & 0x8000;
+        int exp = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mant = bits & 0x7FFFFF;
+        if (exp >= 31) return (short) (sign | 0x7C00);
+        if (exp <= 0) {
+            if (exp < -10) return (short) sign;
+            mant |= 0x800000;
+            int shift = 14 - exp;
+            int half = mant >> shift;
+            if (((mant >> (shift - 1)) & 1) != 0) half++;
+            return (short) (sign | half);
+        }
+        int half = sign | (exp << 10) | (mant >> 13);
+        if ((mant & 0x1000) != 0) half++;
+        return (short) half;
+    }
+
+    static float fromHalf(short h) {
+        int sign = (h & 0x8000) << 16;
+        int exp = (h >>> 10) & 0x1F;
+        int mant = h & 0x3FF;
+        if (exp == 0) {
+            float v = mant / 16777216f;
+            return sign != 0 ? -v : v;
+        }
+        if (exp == 31) return Float.intBitsToFloat(sign | 0x7F800000 | (mant << 13));
+        return Float.intBitsToFloat(sign | ((exp - 15 + 127) << 23) | (mant << 13));
+    }
+
+    private static int tagHash(String tag) {
+        // FNV-1a over UTF-8, stable across JVMs unlike String.hashCode's contract.
+        int h = 0x811C9DC5;
+        for (byte c : tag.getBytes(UTF_8)) {
+            h ^= c & 0xFF;
+            h *= 0x01000193;
+        }
+        return h;
+    }
+
+    private static String base64(byte[] data) {
+        StringBuilder sb = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int i = 0; i < data.length; i += 3) {
+            int n = (data[i] & 0xFF) << 16;
+            if (i + 1 < data.length) n |= (data[i + 1] & 0xFF) << 8;
+            if (i + 2 < data.length) n |= data[i + 2] & 0xFF;
+            sb.append(ALPHABET[(n >>> 18) & 63]).append(ALPHABET[(n >>> 12) & 63]);
+            sb.append(i + 1 < data.length ? ALPHABET[(n >>> 6) & 63] : '=');
+            sb.append(i + 2 < data.length ? ALPHABET[n & 63] : '=');
+        }
+        return sb.toString();
+    }
+
+    private static byte[] unbase64(String s) {
+        int len = s.length();
+        if (len % 4 != 0) return null;
+        int pad = len > 0 && s.charAt(len - 1) == '=' ? (s.charAt(len - 2) == '=' ? 2 : 1) : 0;
+        byte[] out = new byte[len / 4 * 3 - pad];
+        int o = 0;
+        for (int i = 0; i < len; i += 4) {
+            int n = 0;
+            for (int j = 0; j < 4; j++) {
+                char c = s.charAt(i + j);
+                int v;
+                if (c == '=' && i + j >= len - pad) v = 0;
+                else if (c >= 128 || (v = DECODE[c]) < 0) return null;
+                n = (n << 6) | v;
+            }
+            if (o < out.length) out[o++] = (byte) (n >>> 16);
+            if (o < out.length) out[o++] = (byte) (n >>> 8);
+            if (o < out.length) out[o++] = (byte) n;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.face;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class FlatFaceIndex implements FaceIndex {
+    private final int dim;
+    private float[] matrix;
+    private String[] ids;
+    private int size;
+    private final Map<String, Integer> rows = new HashMap<>();
+
+    public FlatFaceIndex(int dim) {
+        this(dim, 64);
+    }
+
+    public FlatFaceIndex(int dim, int initialCapacity) {
+        if (dim <= 0) throw new IllegalArgumentException("dim must be positive");
+        this.dim = dim;
+        int cap = Math.max(1, initialCapacity);
+        this.matrix = new float[cap * dim];
+        this.ids = new String[cap];
+    }
+
+    @Override
+    public synchronized void put(String id, float[] embedding) {
+        if (embedding.length != dim) throw new IllegalArgumentException("dimension mismatch");
+        Integer row = rows.get(id);
+        int r;
+        if (row != null) {
+            r = row;
+        } else {
+            if (size == ids.length) grow();
+            r = size++;
+            ids[r] = id;
+            rows.put(id, r);
+        }
+        int base = r * dim;
+        System.arraycopy(embedding, 0, matrix, base, dim);
+        normalize(matrix, base, dim);
+    }
+
+    @Override
+    public synchronized boolean remove(String id) {
+        Integer row = rows.remove(id);
+        if (row == null) return false;
+        int r = row;
+        int last = --size;
+        if (r != last) {
+            System.arraycopy(matrix, last * dim, matrix, r * dim, dim);
+            ids[r] = ids[last];
+            rows.put(ids[r], r);
+        }
+        ids[last] = null;
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return dim;
+    }
+
+    @Override
+    public synchronized FaceMatch[] search(float[] probe, int k) {
+        if (probe.length != dim) throw new IllegalArgumentException("dimension mismatch");
+        int n = Math.min(k, size);
+        if (n <= 0) return new FaceMatch[0];
+        float[] q = Arrays.copyOf(probe, dim);
+        normalize(q, 0, dim);
+        TopK top = new TopK(n);
+        for (int r = 0, base = 0; r < size; r++, base += dim) top.offer(r, dot(q, 0, matrix, base, dim));
+        return top.toMatches(ids);
+    }
+
+    static float dot(float[] a, int aOff, float[] b, int bOff, int n) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int end = n & ~3;
+        for (; i < end; i += 4) {
+            s0 += a[aOff + i] * b[bOff + i];
+            s1 += a[aOff + i + 1] * b[bOff + i + 1];
+            s2 += a[aOff + i + 2] * b[bOff + i + 2];
+            s3 += a[aOff + i + 3] * b[bOff + i + 3];
+        }
+        for (; i < n; i++) s0 += a[aOff + i] * b[bOff + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static void normalize(float[] v, int off, int n) {
+        float s = dot(v, off, v, off, n);
+        if (s == 0f) return;
+        float inv = (float) (1.0 / Math.sqrt(s));
+        for (int i = off; i < off + n; i++) v[i] *= inv;
+    }
+
+    private void grow() {
+        int cap = ids.length * 2;
+        ids = Arrays.copyOf(ids, cap);
+        matrix = Arrays.copyOf(matrix, cap * dim);
+    }
+}
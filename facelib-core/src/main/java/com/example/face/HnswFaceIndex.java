@@ -0,0 +1,399 @@
+package com.example.face;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class HnswFaceIndex implements FaceIndex {
+    private final int dim;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMult;
+    private final Random random;
+    private int efSearch;
+
+    private float[] vectors;
+    private String[] ids;
+    private int[][][] links;
+    private boolean[] deleted;
+    private int count;
+    private int live;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private final Map<String, Integer> nodes = new HashMap<>();
+
+    private int[] visited;
+    private int visitGen;
+    private final Heap candidates = new Heap(false);
+    private final Heap results = new Heap(true);
+    private int[] scratchIds = new int[16];
+    private float[] scratchDists = new float[16];
+
+    public HnswFaceIndex(int dim) {
+        this(dim, 16, 200, 64, 42L);
+    }
+
+    public HnswFaceIndex(int dim, int m, int efConstruction, int efSearch, long seed) {
+        if (dim <= 0 || m < 2 || efConstruction < 1 || efSearch < 1) throw new IllegalArgumentException("invalid HNSW parameters");
+        this.dim = dim;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMult = 1.0 / Math.log(m);
+        this.random = new Random(seed);
+        allocate(64);
+    }
+
+    public synchronized void setEfSearch(int efSearch) {
+        if (efSearch < 1) throw new IllegalArgumentException("efSearch must be positive");
+        this.efSearch = efSearch;
+    }
+
+    public synchronized int getEfSearch() {
+        return efSearch;
+    }
+
+    @Override
+    public synchronized void put(String id, float[] embedding) {
+        if (embedding.length != dim) throw new IllegalArgumentException("dimension mismatch");
+        Integer old = nodes.remove(id);
+        if (old != null) {
+            deleted[old] = true;
+            live--;
+        }
+        insert(id, embedding);
+        maybeCompact();
+    }
+
+    @Override
+    public synchronized boolean remove(String id) {
+        Integer node = nodes.remove(id);
+        if (node == null) return false;
+        deleted[node] = true;
+        live--;
+        maybeCompact();
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return live;
+    }
+
+    @Override
+    public int dimension() {
+        return dim;
+    }
+
+    @Override
+    public synchronized FaceMatch[] search(float[] probe, int k) {
+        if (probe.length != dim) throw new IllegalArgumentException("dimension mismatch");
+        if (live == 0 || k <= 0) return new FaceMatch[0];
+        float[] q = Arrays.copyOf(probe, dim);
+        FlatFaceIndex.normalize(q, 0, dim);
+        int cur = entryPoint;
+        for (int level = maxLevel; level > 0; level--) cur = greedy(q, cur, level);
+        int ef = Math.max(efSearch, k);
+        if (live < count) ef = (int) Math.min(count, (long) ef * count / live);
+        searchLayer(q, cur, ef, 0);
+        int n = drainResults();
+        FaceMatch[] tmp = new FaceMatch[Math.min(k, n)];
+        int found = 0;
+        for (int i = 0; i < n && found < tmp.length; i++) {
+            int node = scratchIds[i];
+            if (deleted[node]) continue;
+            tmp[found++] = new FaceMatch(ids[node], 1f - scratchDists[i]);
+        }
+        return found == tmp.length ? tmp : Arrays.copyOf(tmp, found);
+    }
+
+    private void insert(String id, float[] embedding) {
+        if (count == ids.length) grow();
+        int node = count++;
+        int base = node * dim;
+        System.arraycopy(embedding, 0, vectors, base, dim);
+        FlatFaceIndex.normalize(vectors, base, dim);
+        ids[node] = id;
+        deleted[node] = false;
+        nodes.put(id, node);
+        live++;
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMult);
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) nodeLinks[l] = new int[1 + (l == 0 ? maxM0 : m)];
+        links[node] = nodeLinks;
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int cur = entryPoint;
+        for (int l = maxLevel; l > level; l--) cur = greedy(vectors, base, cur, l);
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            searchLayer(vectors, base, cur, efConstruction, l);
+            int n = drainResults();
+            cur = scratchIds[0];
+            int[] candIds = Arrays.copyOf(scratchIds, n);
+            float[] candDists = Arrays.copyOf(scratchDists, n);
+            int selected = selectNeighbors(candIds, candDists, n, m);
+            int[] own = nodeLinks[l];
+            own[0] = selected;
+            System.arraycopy(candIds, 0, own, 1, selected);
+            for (int i = 0; i < selected; i++) connect(candIds[i], node, candDists[i], l);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    private void connect(int from, int to, float distance, int level) {
+        int[] list = links[from][level];
+        int cap = list.length - 1;
+        int n = list[0];
+        if (n < cap) {
+            list[n + 1] = to;
+            list[0] = n + 1;
+            return;
+        }
+        int[] candIds = new int[n + 1];
+        float[] candDists = new float[n + 1];
+        int fromBase = from * dim;
+        for (int i = 0; i < n; i++) {
+            candIds[i] = list[i + 1];
+            candDists[i] = distance(fromBase, list[i + 1] * dim);
+        }
+        candIds[n] = to;
+        candDists[n] = distance;
+        sortByDistance(candIds, candDists, n + 1);
+        int selected = selectNeighbors(candIds, candDists, n + 1, cap);
+        list[0] = selected;
+        System.arraycopy(candIds, 0, list, 1, selected);
+    }
+
+    private int selectNeighbors(int[] candIds, float[] candDists, int n, int max) {
+        int selected = 0;
+        boolean[] kept = new boolean[n];
+        for (int i = 0; i < n && selected < max; i++) {
+            int c = candIds[i];
+            boolean good = true;
+            for (int j = 0; j < i; j++) {
+                if (kept[j] && distance(c * dim, candIds[j] * dim) < candDists[i]) {
+                    good = false;
+                    break;
+                }
+            }
+            if (good) {
+                kept[i] = true;
+                selected++;
+            }
+        }
+        for (int i = 0; i < n && selected < max; i++) {
+            if (!kept[i]) {
+                kept[i] = true;
+                selected++;
+            }
+        }
+        int w = 0;
+        for (int i = 0; i < n; i++) {
+            if (!kept[i]) continue;
+            candIds[w] = candIds[i];
+            candDists[w] = candDists[i];
+            w++;
+        }
+        return selected;
+    }
+
+    private int greedy(float[] q, int entry, int level) {
+        return greedy(q, 0, entry, level);
+    }
+
+    private int greedy(float[] q, int qOff, int entry, int level) {
+        int cur = entry;
+        float curDist = 1f - FlatFaceIndex.dot(q, qOff, vectors, cur * dim, dim);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[cur][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int nb = list[i];
+                float d = 1f - FlatFaceIndex.dot(q, qOff, vectors, nb * dim, dim);
+                if (d < curDist) {
+                    curDist = d;
+                    cur = nb;
+                    changed = true;
+                }
+            }
+        }
+        return cur;
+    }
+
+    private void searchLayer(float[] q, int entry, int ef, int level) {
+        searchLayer(q, 0, entry, ef, level);
+    }
+
+    private void searchLayer(float[] q, int qOff, int entry, int ef, int level) {
+        if (++visitGen == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            visitGen = 1;
+        }
+        candidates.clear();
+        results.clear();
+        float d0 = 1f - FlatFaceIndex.dot(q, qOff, vectors, entry * dim, dim);
+        visited[entry] = visitGen;
+        candidates.push(d0, entry);
+        results.push(d0, entry);
+        while (candidates.size > 0) {
+            float cd = candidates.peekKey();
+            if (results.size >= ef && cd > results.peekKey()) break;
+            int c = candidates.pop();
+            int[][] nodeLinks = links[c];
+            if (level >= nodeLinks.length) continue;
+            int[] list = nodeLinks[level];
+            for (int i = 1; i <= list[0]; i++) {
+                int nb = list[i];
+                if (visited[nb] == visitGen) continue;
+                visited[nb] = visitGen;
+                float d = 1f - FlatFaceIndex.dot(q, qOff, vectors, nb * dim, dim);
+                if (results.size < ef || d < results.peekKey()) {
+                    candidates.push(d, nb);
+                    results.push(d, nb);
+                    if (results.size > ef) results.pop();
+                }
+            }
+        }
+    }
+
+    private int drainResults() {
+        int n = results.size;
+        if (scratchIds.length < n) {
+            scratchIds = new int[n];
+            scratchDists = new float[n];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            scratchDists[i] = results.peekKey();
+            scratchIds[i] = results.pop();
+        }
+        return n;
+    }
+
+    private float distance(int aBase, int bBase) {
+        return 1f - FlatFaceIndex.dot(vectors, aBase, vectors, bBase, dim);
+    }
+
+    private static void sortByDistance(int[] ids, float[] dists, int n) {
+        for (int i = 1; i < n; i++) {
+            float d = dists[i];
+            int id = ids[i];
+            int j = i - 1;
+            while (j >= 0 && dists[j] > d) {
+                dists[j + 1] = dists[j];
+                ids[j + 1] = ids[j];
+                j--;
+            }
+            dists[j + 1] = d;
+            ids[j + 1] = id;
+        }
+    }
+
+    private void maybeCompact() {
+        int dead = count - live;
+        if (dead < 64 || dead < live) return;
+        float[] oldVectors = vectors;
+        String[] oldIds = ids;
+        boolean[] oldDeleted = deleted;
+        int oldCount = count;
+        allocate(Math.max(64, live * 2));
+        nodes.clear();
+        count = 0;
+        live = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+        float[] v = new float[dim];
+        for (int i = 0; i < oldCount; i++) {
+            if (oldDeleted[i]) continue;
+            System.arraycopy(oldVectors, i * dim, v, 0, dim);
+            insert(oldIds[i], v);
+        }
+    }
+
+    private void allocate(int capacity) {
+        vectors = new float[capacity * dim];
+        ids = new String[capacity];
+        links = new int[capacity][][];
+        deleted = new boolean[capacity];
+        visited = new int[capacity];
+        visitGen = 0;
+    }
+
+    private void grow() {
+        int cap = ids.length * 2;
+        vectors = Arrays.copyOf(vectors, cap * dim);
+        ids = Arrays.copyOf(ids, cap);
+        links = Arrays.copyOf(links, cap);
+        deleted = Arrays.copyOf(deleted, cap);
+        visited = Arrays.copyOf(visited, cap);
+    }
+
+    private static final class Heap {
+        private final boolean max;
+        private float[] keys = new float[64];
+        private int[] values = new int[64];
+        int size;
+
+        Heap(boolean max) {
+            this.max = max;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        float peekKey() {
+            return keys[0];
+        }
+
+        void push(float key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (!before(key, keys[parent])) break;
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int top = values[0];
+            int last = --size;
+            float key = keys[last];
+            int value = values[last];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && before(keys[child + 1], keys[child])) child++;
+                if (!before(keys[child], key)) break;
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
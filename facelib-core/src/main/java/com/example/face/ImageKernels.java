@@ -0,0 +1,156 @@
+package com.example.face;
+
+public final class ImageKernels {
+    public static final float MEAN = 127.5f;
+    public static final float STD = 128.0f;
+
+    private ImageKernels() {}
+
+    public static void cropResizeNormalize(int[] src, int srcWidth, int srcHeight,
+                                           float cropLeft, float cropTop, float cropWidth, float cropHeight,
+                                           boolean mirror, int outWidth, int outHeight,
+                                           float[] dst, int dstOffset) {
+        cropResize(src, srcWidth, srcHeight, cropLeft, cropTop, cropWidth, cropHeight, mirror,
+                outWidth, outHeight, dst, null, 0, dstOffset);
+    }
+
+    /**
+     * Same sampling as {@link #cropResizeNormalize}, but writes each channel as its rounded 8-bit
+     * value, with the top bit flipped when {@code signed}. For quantized models whose input params
+     * map pixels onto themselves; see {@link TensorQuantization#isPixelIdentity}.
+     */
+    public static void cropResizePixels(int[] src, int srcWidth, int srcHeight,
+                                        float cropLeft, float cropTop, float cropWidth, float cropHeight,
+                                        boolean mirror, int outWidth, int outHeight, boolean signed,
+                                        byte[] dst, int dstOffset) {
+        cropResize(src, srcWidth, srcHeight, cropLeft, cropTop, cropWidth, cropHeight, mirror,
+                outWidth, outHeight, null, dst, signed ? 0x80 : 0, dstOffset);
+    }
+
+    private static void cropResize(int[] src, int srcWidth, int srcHeight,
+                                   float cropLeft, float cropTop, float cropWidth, float cropHeight,
+                                   boolean mirror, int outWidth, int outHeight,
+                                   float[] dst, byte[] bytes, int flip, int dstOffset) {
+        float scaleX = cropWidth / outWidth;
+        float scaleY = cropHeight / outHeight;
+        float inv = 1f / STD;
+        int maxX = srcWidth - 1;
+        int maxY = srcHeight - 1;
+        int o = dstOffset;
+        for (int oy = 0; oy < outHeight; oy++) {
+            float sy = cropTop + (oy + 0.5f) * scaleY - 0.5f;
+            if (sy < 0f) sy = 0f;
+            if (sy > maxY) sy = maxY;
+            int y0 = (int) sy;
+            int y1 = y0 < maxY ? y0 + 1 : y0;
+            float fy = sy - y0;
+            int row0 = y0 * srcWidth;
+            int row1 = y1 * srcWidth;
+            for (int ox = 0; ox < outWidth; ox++) {
+                int cx = mirror ? outWidth - 1 - ox : ox;
+                float sx = cropLeft + (cx + 0.5f) * scaleX - 0.5f;
+                if (sx < 0f) sx = 0f;
+                if (sx > maxX) sx = maxX;
+                int x0 = (int) sx;
+                int x1 = x0 < maxX ? x0 + 1 : x0;
+                float fx = sx - x0;
+                int p00 = src[row0 + x0];
+                int p01 = src[row0 + x1];
+                int p10 = src[row1 + x0];
+                int p11 = src[row1 + x1];
+                float w00 = (1f - fx) * (1f - fy);
+                float w01 = fx * (1f - fy);
+                float w10 = (1f - fx) * fy;
+                float w11 = fx * fy;
+                float r = ((p00 >> 16) & 0xFF) * w00 + ((p01 >> 16) & 0xFF) * w01
+                        + ((p10 >> 16) & 0xFF) * w10 + ((p11 >> 16) & 0xFF) * w11;
+                float g = ((p00 >> 8) & 0xFF) * w00 + ((p01 >> 8) & 0xFF) * w01
+                        + ((p10 >> 8) & 0xFF) * w10 + ((p11 >> 8) & 0xFF) * w11;
+                float b = (p00 & 0xFF) * w00 + (p01 & 0xFF) * w01
+                        + (p10 & 0xFF) * w10 + (p11 & 0xFF) * w11;
+                if (bytes != null) {
+                    bytes[o++] = (byte) ((int) (r + 0.5f) ^ flip);
+                    bytes[o++] = (byte) ((int) (g + 0.5f) ^ flip);
+                    bytes[o++] = (byte) ((int) (b + 0.5f) ^ flip);
+                } else {
+                    dst[o++] = (r - MEAN) * inv;
+                    dst[o++] = (g - MEAN) * inv;
+                    dst[o++] = (b - MEAN) * inv;
+                }
+            }
+        }
+    }
+
+    /**
+     * Samples an affine-warped window of {@code src} straight into a normalized RGB tensor. {@code m}
+     * maps output pixel coordinates to source coordinates; samples outside the source clamp to the edge.
+     */
+    public static void warpAffineNormalize(int[] src, int srcWidth, int srcHeight, float[] m,
+                                           boolean mirror, int outWidth, int outHeight,
+                                           float[] dst, int dstOffset) {
+        warpAffine(src, srcWidth, srcHeight, m, mirror, outWidth, outHeight, dst, null, 0, dstOffset);
+    }
+
+    /** 8-bit counterpart of {@link #warpAffineNormalize}, written like {@link #cropResizePixels}. */
+    public static void warpAffinePixels(int[] src, int srcWidth, int srcHeight, float[] m,
+                                        boolean mirror, int outWidth, int outHeight, boolean signed,
+                                        byte[] dst, int dstOffset) {
+        warpAffine(src, srcWidth, srcHeight, m, mirror, outWidth, outHeight, null, dst, signed ? 0x80 : 0, dstOffset);
+    }
+
+    private static void warpAffine(int[] src, int srcWidth, int srcHeight, float[] m,
+                                   boolean mirror, int outWidth, int outHeight,
+                                   float[] dst, byte[] bytes, int flip, int dstOffset) {
+        float inv = 1f / STD;
+        int maxX = srcWidth - 1;
+        int maxY = srcHeight - 1;
+        float stepX = mirror ? -m[0] : m[0];
+        float stepY = mirror ? -m[3] : m[3];
+        int o = dstOffset;
+        for (int oy = 0; oy < outHeight; oy++) {
+            float cx0 = mirror ? outWidth - 0.5f : 0.5f;
+            float py = oy + 0.5f;
+            float sxRow = m[0] * cx0 + m[1] * py + m[2] - 0.5f;
+            float syRow = m[3] * cx0 + m[4] * py + m[5] - 0.5f;
+            for (int ox = 0; ox < outWidth; ox++) {
+                float sx = sxRow + ox * stepX;
+                float sy = syRow + ox * stepY;
+                if (sx < 0f) sx = 0f;
+                if (sx > maxX) sx = maxX;
+                if (sy < 0f) sy = 0f;
+                if (sy > maxY) sy = maxY;
+                int x0 = (int) sx;
+                int y0 = (int) sy;
+                int x1 = x0 < maxX ? x0 + 1 : x0;
+                int y1 = y0 < maxY ? y0 + 1 : y0;
+                float fx = sx - x0;
+                float fy = sy - y0;
+                int row0 = y0 * srcWidth;
+                int row1 = y1 * srcWidth;
+                int p00 = src[row0 + x0];
+                int p01 = src[row0 + x1];
+                int p10 = src[row1 + x0];
+                int p11 = src[row1 + x1];
+                float w00 = (1f - fx) * (1f - fy);
+                float w01 = fx * (1f - fy);
+                float w10 = (1f - fx) * fy;
+                float w11 = fx * fy;
+                float r = ((p00 >> 16) & 0xFF) * w00 + ((p01 >> 16) & 0xFF) * w01
+                        + ((p10 >> 16) & 0xFF) * w10 + ((p11 >> 16) & 0xFF) * w11;
+                float g = ((p00 >> 8) & 0xFF) * w00 + ((p01 >> 8) & 0xFF) * w01
+                        + ((p10 >> 8) & 0xFF) * w10 + ((p11 >> 8) & 0xFF) * w11;
+                float b = (p00 & 0xFF) * w00 + (p01 & 0xFF) * w01
+                        + (p10 & 0xFF) * w10 + (p11 & 0xFF) * w11;
+                if (bytes != null) {
+                    bytes[o++] = (byte) ((int) (r + 0.5f) ^ flip);
+                    bytes[o++] = (byte) ((int) (g + 0.5f) ^ flip);
+                    bytes[o++] = (byte) ((int) (b + 0.5f) ^ flip);
+                } else {
+                    dst[o++] = (r - MEAN) * inv;
+                    dst[o++] = (g - MEAN) * inv;
+                    dst[o++] = (b - MEAN) * inv;
+                }
+            }
+        }
+    }
+}
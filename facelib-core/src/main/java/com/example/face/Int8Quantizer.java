@@ -0,0 +1,42 @@
+package com.example.face;
+
+public final class Int8Quantizer {
+    private Int8Quantizer() {}
+
+    public static float quantize(float[] v, int vOff, int dim, byte[] codes, int codesOff) {
+        float maxAbs = 0f;
+        for (int i = 0; i < dim; i++) {
+            float a = Math.abs(v[vOff + i]);
+            if (a > maxAbs) maxAbs = a;
+        }
+        if (maxAbs == 0f) {
+            for (int i = 0; i < dim; i++) codes[codesOff + i] = 0;
+            return 0f;
+        }
+        float scale = maxAbs / 127f;
+        float inv = 1f / scale;
+        for (int i = 0; i < dim; i++) {
+            int q = Math.round(v[vOff + i] * inv);
+            codes[codesOff + i] = (byte) (q > 127 ? 127 : (q < -127 ? -127 : q));
+        }
+        return scale;
+    }
+
+    public static void dequantize(byte[] codes, int codesOff, float scale, int dim, float[] out, int outOff) {
+        for (int i = 0; i < dim; i++) out[outOff + i] = codes[codesOff + i] * scale;
+    }
+
+    public static float dot(float[] q, int qOff, byte[] codes, int codesOff, float scale, int dim) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int end = dim & ~3;
+        for (; i < end; i += 4) {
+            s0 += q[qOff + i] * codes[codesOff + i];
+            s1 += q[qOff + i + 1] * codes[codesOff + i + 1];
+            s2 += q[qOff + i + 2] * codes[codesOff + i + 2];
+            s3 += q[qOff + i + 3] * codes[codesOff + i + 3];
+        }
+        for (; i < dim; i++) s0 += q[qOff + i] * codes[codesOff + i];
+        return ((s0 + s1) + (s2 + s3)) * scale;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.face;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram in the style of HdrHistogram: values below 32 ns are
+ * exact, and every power-of-two range above is split into 32 equal buckets, which keeps the
+ * relative error within about 3%. Values are nanoseconds and are capped at roughly 36 minutes.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 41;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = SUB_COUNT + (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long v = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        counts.incrementAndGet(index(v));
+        total.incrementAndGet();
+        sum.addAndGet(v);
+        long m;
+        while (v < (m = min.get()) && !min.compareAndSet(m, v)) { }
+        while (v > (m = max.get()) && !max.compareAndSet(m, v)) { }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0L);
+        total.set(0L);
+        sum.set(0L);
+        min.set(Long.MAX_VALUE);
+        max.set(0L);
+    }
+
+    public Snapshot snapshot() {
+        long[] c = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            c[i] = counts.get(i);
+            n += c[i];
+        }
+        long lo = min.get();
+        return new Snapshot(c, n, sum.get(), lo == Long.MAX_VALUE ? 0L : lo, max.get());
+    }
+
+    static int index(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) ((v >>> (e - SUB_BITS)) & (SUB_COUNT - 1));
+        return SUB_COUNT + (e - SUB_BITS) * SUB_COUNT + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_COUNT) return index;
+        int e = (index - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+        int sub = (index - SUB_COUNT) % SUB_COUNT;
+        return (1L << e) | ((long) sub << (e - SUB_BITS));
+    }
+
+    static long width(int index) {
+        if (index < SUB_COUNT) return 1L;
+        return 1L << ((index - SUB_COUNT) / SUB_COUNT);
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        public final long count;
+        public final long sumNanos;
+        public final long minNanos;
+        public final long maxNanos;
+
+        Snapshot(long[] counts, long count, long sumNanos, long minNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.minNanos = minNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public double meanNanos() {
+            return count == 0 ? 0.0 : (double) sumNanos / count;
+        }
+
+        /** Value at quantile {@code q} (0..1), reported as the midpoint of its bucket. */
+        public long percentileNanos(double q) {
+            if (count == 0) return 0L;
+            long rank = Math.max(1L, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    long mid = lowerBound(i) + (width(i) - 1) / 2;
+                    return Math.max(minNanos, Math.min(maxNanos, mid));
+                }
+            }
+            return maxNanos;
+        }
+
+        void appendJson(StringBuilder sb) {
+            sb.append("{\"count\":").append(count)
+                    .append(",\"meanUs\":").append(micros(meanNanos()))
+                    .append(",\"minUs\":").append(micros(minNanos))
+                    .append(",\"p50Us\":").append(micros(percentileNanos(0.50)))
+                    .append(",\"p90Us\":").append(micros(percentileNanos(0.90)))
+                    .append(",\"p99Us\":").append(micros(percentileNanos(0.99)))
+                    .append(",\"maxUs\":").append(micros(maxNanos))
+                    .append('}');
+        }
+
+        private static String micros(double nanos) {
+            return String.format(Locale.US, "%.1f", nanos / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.face;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class ProductQuantizer {
+    public static final int CENTROIDS = 256;
+
+    private final int dim;
+    private final int subspaces;
+    private final int subDim;
+    private final float[] codebooks;
+
+    public ProductQuantizer(int dim, int subspaces, float[] codebooks) {
+        if (dim <= 0 || subspaces <= 0 || dim % subspaces != 0) {
+            throw new IllegalArgumentException("dim must be a positive multiple of subspaces");
+        }
+        if (codebooks.length != subspaces * CENTROIDS * (dim / subspaces)) {
+            throw new IllegalArgumentException("codebook size mismatch");
+        }
+        this.dim = dim;
+        this.subspaces = subspaces;
+        this.subDim = dim / subspaces;
+        this.codebooks = codebooks;
+    }
+
+    public static ProductQuantizer train(float[] data, int count, int dim, int subspaces, int iterations, long seed) {
+        if (count <= 0) throw new IllegalArgumentException("no training data");
+        if (dim <= 0 || subspaces <= 0 || dim % subspaces != 0) {
+            throw new IllegalArgumentException("dim must be a positive multiple of subspaces");
+        }
+        int subDim = dim / subspaces;
+        float[] normalized = new float[count * dim];
+        System.arraycopy(data, 0, normalized, 0, count * dim);
+        for (int i = 0; i < count; i++) FlatFaceIndex.normalize(normalized, i * dim, dim);
+        float[] codebooks = new float[subspaces * CENTROIDS * subDim];
+        Random random = new Random(seed);
+        float[] sums = new float[CENTROIDS * subDim];
+        int[] sizes = new int[CENTROIDS];
+        for (int s = 0; s < subspaces; s++) {
+            int cbOff = s * CENTROIDS * subDim;
+            int vecOff = s * subDim;
+            for (int c = 0; c < CENTROIDS; c++) {
+                int src = random.nextInt(count) * dim + vecOff;
+                System.arraycopy(normalized, src, codebooks, cbOff + c * subDim, subDim);
+            }
+            for (int it = 0; it < iterations; it++) {
+                Arrays.fill(sums, 0f);
+                Arrays.fill(sizes, 0);
+                for (int i = 0; i < count; i++) {
+                    int c = nearest(normalized, i * dim + vecOff, codebooks, cbOff, subDim);
+                    sizes[c]++;
+                    int so = c * subDim;
+                    int vo = i * dim + vecOff;
+                    for (int d = 0; d < subDim; d++) sums[so + d] += normalized[vo + d];
+                }
+                for (int c = 0; c < CENTROIDS; c++) {
+                    int co = cbOff + c * subDim;
+                    if (sizes[c] == 0) {
+                        int src = random.nextInt(count) * dim + vecOff;
+                        System.arraycopy(normalized, src, codebooks, co, subDim);
+                        continue;
+                    }
+                    float inv = 1f / sizes[c];
+                    for (int d = 0; d < subDim; d++) codebooks[co + d] = sums[c * subDim + d] * inv;
+                }
+            }
+        }
+        return new ProductQuantizer(dim, subspaces, codebooks);
+    }
+
+    public int dimension() {
+        return dim;
+    }
+
+    public int codeSize() {
+        return subspaces;
+    }
+
+    public float[] getCodebooks() {
+        return codebooks;
+    }
+
+    public void encode(float[] v, int vOff, byte[] codes, int codesOff) {
+        for (int s = 0; s < subspaces; s++) {
+            int c = nearest(v, vOff + s * subDim, codebooks, s * CENTROIDS * subDim, subDim);
+            codes[codesOff + s] = (byte) c;
+        }
+    }
+
+    public void decode(byte[] codes, int codesOff, float[] out, int outOff) {
+        for (int s = 0; s < subspaces; s++) {
+            int c = codes[codesOff + s] & 0xFF;
+            System.arraycopy(codebooks, (s * CENTROIDS + c) * subDim, out, outOff + s * subDim, subDim);
+        }
+    }
+
+    public void distanceTable(float[] q, int qOff, float[] table) {
+        for (int s = 0; s < subspaces; s++) {
+            int cbOff = s * CENTROIDS * subDim;
+            int tOff = s * CENTROIDS;
+            for (int c = 0; c < CENTROIDS; c++) {
+                table[tOff + c] = FlatFaceIndex.dot(q, qOff + s * subDim, codebooks, cbOff + c * subDim, subDim);
+            }
+        }
+    }
+
+    public float score(float[] table, byte[] codes, int codesOff) {
+        float sum = 0f;
+        int t = 0;
+        for (int s = 0; s < subspaces; s++, t += CENTROIDS) sum += table[t + (codes[codesOff + s] & 0xFF)];
+        return sum;
+    }
+
+    private static int nearest(float[] v, int vOff, float[] codebooks, int cbOff, int subDim) {
+        int best = 0;
+        float bestDist = Float.POSITIVE_INFINITY;
+        for (int c = 0; c < CENTROIDS; c++) {
+            int co = cbOff + c * subDim;
+            float d = 0f;
+            for (int i = 0; i < subDim; i++) {
+                float diff = v[vOff + i] - codebooks[co + i];
+                d += diff * diff;
+            }
+            if (d < bestDist) {
+                bestDist = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
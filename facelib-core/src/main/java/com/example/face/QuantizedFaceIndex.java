@@ -0,0 +1,122 @@
+package com.example.face;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QuantizedFaceIndex implements FaceIndex {
+    private final int dim;
+    private final ProductQuantizer pq;
+    private final int codeSize;
+    private byte[] codes;
+    private float[] scales;
+    private String[] ids;
+    private int size;
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final float[] scratch;
+
+    public QuantizedFaceIndex(int dim) {
+        this.dim = dim;
+        this.pq = null;
+        this.codeSize = dim;
+        this.scratch = new float[dim];
+        allocate(64);
+    }
+
+    public QuantizedFaceIndex(ProductQuantizer pq) {
+        this.dim = pq.dimension();
+        this.pq = pq;
+        this.codeSize = pq.codeSize();
+        this.scratch = new float[dim];
+        allocate(64);
+    }
+
+    public boolean isProductQuantized() {
+        return pq != null;
+    }
+
+    public int bytesPerVector() {
+        return pq != null ? codeSize : codeSize + 4;
+    }
+
+    @Override
+    public synchronized void put(String id, float[] embedding) {
+        if (embedding.length != dim) throw new IllegalArgumentException("dimension mismatch");
+        Integer row = rows.get(id);
+        int r;
+        if (row != null) {
+            r = row;
+        } else {
+            if (size == ids.length) grow();
+            r = size++;
+            ids[r] = id;
+            rows.put(id, r);
+        }
+        System.arraycopy(embedding, 0, scratch, 0, dim);
+        FlatFaceIndex.normalize(scratch, 0, dim);
+        if (pq != null) {
+            pq.encode(scratch, 0, codes, r * codeSize);
+        } else {
+            scales[r] = Int8Quantizer.quantize(scratch, 0, dim, codes, r * codeSize);
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(String id) {
+        Integer row = rows.remove(id);
+        if (row == null) return false;
+        int r = row;
+        int last = --size;
+        if (r != last) {
+            System.arraycopy(codes, last * codeSize, codes, r * codeSize, codeSize);
+            if (scales != null) scales[r] = scales[last];
+            ids[r] = ids[last];
+            rows.put(ids[r], r);
+        }
+        ids[last] = null;
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return dim;
+    }
+
+    @Override
+    public synchronized FaceMatch[] search(float[] probe, int k) {
+        if (probe.length != dim) throw new IllegalArgumentException("dimension mismatch");
+        int n = Math.min(k, size);
+        if (n <= 0) return new FaceMatch[0];
+        float[] q = Arrays.copyOf(probe, dim);
+        FlatFaceIndex.normalize(q, 0, dim);
+        TopK top = new TopK(n);
+        if (pq != null) {
+            float[] table = new float[codeSize * ProductQuantizer.CENTROIDS];
+            pq.distanceTable(q, 0, table);
+            for (int r = 0, off = 0; r < size; r++, off += codeSize) top.offer(r, pq.score(table, codes, off));
+        } else {
+            for (int r = 0, off = 0; r < size; r++, off += codeSize) {
+                top.offer(r, Int8Quantizer.dot(q, 0, codes, off, scales[r], dim));
+            }
+        }
+        return top.toMatches(ids);
+    }
+
+    private void allocate(int capacity) {
+        codes = new byte[capacity * codeSize];
+        scales = pq != null ? null : new float[capacity];
+        ids = new String[capacity];
+    }
+
+    private void grow() {
+        int cap = ids.length * 2;
+        codes = Arrays.copyOf(codes, cap * codeSize);
+        if (scales != null) scales = Arrays.copyOf(scales, cap);
+        ids = Arrays.copyOf(ids, cap);
+    }
+}
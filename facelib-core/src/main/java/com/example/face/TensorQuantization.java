@@ -0,0 +1,88 @@
+package com.example.face;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Affine quantization of an 8-bit model tensor, {@code real = (q - zeroPoint) * scale}. When the input
+ * params put one quantization step on one pixel level, as the usual {@code scale = 1/128,
+ * zeroPoint = 128} uint8 export does, the kernels write pixel bytes straight into the tensor (see
+ * {@link #isPixelIdentity}); the model then sees {@code (p - 128) / 128}, half a level off the float
+ * model's {@code (p - 127.5) / 128}. Such params must not go through {@link #quantize}: it rounds
+ * {@code p + 0.5}, feeding every pixel as {@code p + 1} and saturating 255. Other params are staged
+ * as normalized floats and quantized on upload. Not thread-safe.
+ */
+final class TensorQuantization {
+    final boolean signed;
+    final float scale;
+    final float zeroPoint;
+    private final float invScale;
+    private final int min;
+    private final int max;
+    private final boolean pixelIdentity;
+    private byte[] scratch = new byte[0];
+
+    TensorQuantization(boolean signed, float scale, float zeroPoint) {
+        this.signed = signed;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+        this.invScale = 1f / scale;
+        this.min = signed ? -128 : 0;
+        this.max = signed ? 127 : 255;
+        // The error is affine in the pixel value, so checking both ends covers every level.
+        this.pixelIdentity = mapsPixel(0) && mapsPixel(255);
+    }
+
+    /**
+     * Params for a model that carries no quantization info on its input: the tensor is taken to hold
+     * raw pixel bytes (shifted by 128 when signed), which is what the normalized floats map back to.
+     */
+    static TensorQuantization forPixels(boolean signed) {
+        float zero = signed ? ImageKernels.MEAN - 128f : ImageKernels.MEAN;
+        return new TensorQuantization(signed, 1f / ImageKernels.STD, zero);
+    }
+
+    /**
+     * True when feeding pixel {@code p} as byte {@code p} ({@code p ^ 0x80} when signed) lands within
+     * half a step of its normalized value, so inputs can skip the float staging entirely.
+     */
+    boolean isPixelIdentity() {
+        return pixelIdentity;
+    }
+
+    private boolean mapsPixel(int p) {
+        int q = signed ? p - 128 : p;
+        float error = (q - zeroPoint) * scale - (p - ImageKernels.MEAN) / ImageKernels.STD;
+        return Math.abs(error) <= 0.5f * scale + 1e-6f;
+    }
+
+    /** Quantizes {@code src[offset, offset + length)} and writes it at the buffer's position. */
+    void quantize(float[] src, int offset, int length, ByteBuffer dst) {
+        if (scratch.length < length) scratch = new byte[length];
+        byte[] q = scratch;
+        float inv = invScale;
+        float zero = zeroPoint;
+        for (int i = 0; i < length; i++) {
+            int v = Math.round(src[offset + i] * inv + zero);
+            q[i] = (byte) (v < min ? min : (v > max ? max : v));
+        }
+        dst.put(q, 0, length);
+    }
+
+    float dequantize(byte q) {
+        return ((signed ? q : q & 0xFF) - zeroPoint) * scale;
+    }
+
+    /** Reads {@code length} values from the buffer's position into {@code out[offset...]}. */
+    void dequantize(ByteBuffer src, float[] out, int offset, int length) {
+        if (scratch.length < length) scratch = new byte[length];
+        byte[] q = scratch;
+        src.get(q, 0, length);
+        float s = scale;
+        float zero = zeroPoint;
+        if (signed) {
+            for (int i = 0; i < length; i++) out[offset + i] = (q[i] - zero) * s;
+        } else {
+            for (int i = 0; i < length; i++) out[offset + i] = ((q[i] & 0xFF) - zero) * s;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.face;
+
+import java.util.Arrays;
+
+final class TopK {
+    final int[] rows;
+    final float[] scores;
+    private final int k;
+    private float floor = Float.NEGATIVE_INFINITY;
+
+    TopK(int k) {
+        this.k = k;
+        this.rows = new int[k];
+        this.scores = new float[k];
+        Arrays.fill(scores, Float.NEGATIVE_INFINITY);
+    }
+
+    void offer(int row, float score) {
+        if (score <= floor) return;
+        int i = k - 1;
+        while (i > 0 && scores[i - 1] < score) {
+            scores[i] = scores[i - 1];
+            rows[i] = rows[i - 1];
+            i--;
+        }
+        scores[i] = score;
+        rows[i] = row;
+        floor = scores[k - 1];
+    }
+
+    FaceMatch[] toMatches(String[] ids) {
+        FaceMatch[] out = new FaceMatch[k];
+        for (int i = 0; i < k; i++) out[i] = new FaceMatch(ids[rows[i]], scores[i]);
+        return out;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.face;
+
+/** Embedding arithmetic shared by the recognizer and the embedder. */
+public final class VectorMath {
+    private VectorMath() {}
+
+    /** Dot product; equals the cosine similarity for L2-normalized vectors. */
+    public static float cosine(float[] a, float[] b) {
+        float s = 0f;
+        for (int i = 0; i < a.length; i++) s += a[i] * b[i];
+        return s;
+    }
+
+    public static float euclidean(float[] a, float[] b) {
+        float s = 0f;
+        for (int i = 0; i < a.length; i++) {
+            float d = a[i] - b[i];
+            s += d * d;
+        }
+        return (float) Math.sqrt(s);
+    }
+
+    public static void normalizeL2(float[] v) {
+        normalizeL2(v, 0, v.length);
+    }
+
+    public static void normalizeL2(float[] v, int offset, int length) {
+        float sum = 0f;
+        for (int i = offset; i < offset + length; i++) sum += v[i] * v[i];
+        float norm = (float) Math.sqrt(sum);
+        if (norm == 0f) return;
+        for (int i = offset; i < offset + length; i++) v[i] /= norm;
+    }
+
+    /** Element-wise mean of {@code packed[offsetA...]} and {@code packed[offsetB...]}. */
+    public static float[] average(float[] packed, int offsetA, int offsetB, int length) {
+        float[] r = new float[length];
+        for (int i = 0; i < length; i++) r[i] = 0.5f * (packed[offsetA + i] + packed[offsetB + i]);
+        return r;
+    }
+
+    public static float sigmoid(float x) {
+        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.face;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Accuracy and latency of a verifier over labelled pairs: ROC, AUC, equal error rate, TAR at fixed
+ * FAR and per-pair latency percentiles. Scores are anything monotonic in "same person", so results for
+ * different {@code alpha}/{@code c0} settings differ only in where the thresholds land.
+ *
+ * <p>A pair directory holds the images plus {@code pairs.txt}, one pair per line as
+ * {@code <imageA> <imageB> <1 same | 0 different>}; blank lines and {@code #} comments are skipped.
+ * Scored runs are written as tab-separated {@code imageA imageB label score latencyUs} rows, which
+ * {@link #main} turns back into a report on any JVM.
+ */
+public final class VerificationEval {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    public static final String PAIRS_FILE = "pairs.txt";
+
+    public static final class Pair {
+        public final String first;
+        public final String second;
+        public final boolean genuine;
+
+        public Pair(String first, String second, boolean genuine) {
+            this.first = first;
+            this.second = second;
+            this.genuine = genuine;
+        }
+    }
+
+    private float[] scores = new float[64];
+    private boolean[] genuine = new boolean[64];
+    private int size;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public static List<Pair> readPairs(File dir) throws IOException {
+        List<Pair> pairs = new ArrayList<>();
+        for (String[] f : readRows(new File(dir, PAIRS_FILE), "\\s+")) {
+            if (f.length < 3) throw new IOException("bad pair line: " + Arrays.toString(f));
+            pairs.add(new Pair(f[0], f[1], "1".equals(f[2])));
+        }
+        return pairs;
+    }
+
+    /** Loads rows written by a harness run. */
+    public static VerificationEval readResults(File tsv) throws IOException {
+        VerificationEval eval = new VerificationEval();
+        for (String[] f : readRows(tsv, "\t")) {
+            if (f.length < 5) throw new IOException("bad result line: " + Arrays.toString(f));
+            eval.add(Float.parseFloat(f[3]), "1".equals(f[2]), Math.round(Double.parseDouble(f[4]) * 1000.0));
+        }
+        return eval;
+    }
+
+    public static String resultRow(Pair pair, float score, long latencyNanos) {
+        return pair.first + '\t' + pair.second + '\t' + (pair.genuine ? 1 : 0) + '\t' + score + '\t'
+                + String.format(Locale.US, "%.1f", latencyNanos / 1000.0);
+    }
+
+    public synchronized void add(float score, boolean sameIdentity, long latencyNanos) {
+        if (size == scores.length) {
+            scores = Arrays.copyOf(scores, size * 2);
+            genuine = Arrays.copyOf(genuine, size * 2);
+        }
+        scores[size] = score;
+        genuine[size] = sameIdentity;
+        size++;
+        latency.record(latencyNanos);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized Report report() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        final float[] s = scores;
+        Arrays.sort(order, (a, b) -> Float.compare(s[b], s[a]));
+        int positives = 0;
+        for (int i = 0; i < size; i++) if (genuine[i]) positives++;
+        int negatives = size - positives;
+
+        // One ROC point per distinct score, walking the threshold down from the highest score.
+        float[] fpr = new float[size + 1];
+        float[] tpr = new float[size + 1];
+        float[] thresholds = new float[size + 1];
+        thresholds[0] = Float.POSITIVE_INFINITY;
+        int points = 1;
+        int tp = 0;
+        int fp = 0;
+        for (int k = 0; k < size; k++) {
+            int i = order[k];
+            if (genuine[i]) tp++;
+            else fp++;
+            if (k + 1 < size && s[order[k + 1]] == s[i]) continue;
+            fpr[points] = negatives == 0 ? 0f : (float) fp / negatives;
+            tpr[points] = positives == 0 ? 0f : (float) tp / positives;
+            thresholds[points] = s[i];
+            points++;
+        }
+
+        double auc = 0.0;
+        for (int p = 1; p < points; p++) auc += (fpr[p] - fpr[p - 1]) * (tpr[p] + tpr[p - 1]) * 0.5;
+
+        // EER: the first point where the false reject rate drops to the false accept rate,
+        // interpolated between it and the point before.
+        float eer = Float.NaN;
+        float eerThreshold = Float.NaN;
+        for (int p = 1; p < points; p++) {
+            float fnr = 1f - tpr[p];
+            if (fnr > fpr[p]) continue;
+            float prevGap = (1f - tpr[p - 1]) - fpr[p - 1];
+            float gap = fnr - fpr[p];
+            float w = prevGap - gap == 0f ? 0f : prevGap / (prevGap - gap);
+            eer = (fpr[p - 1] + w * (fpr[p] - fpr[p - 1]) + (1f - tpr[p - 1]) + w * (tpr[p - 1] - tpr[p])) * 0.5f;
+            eerThreshold = p == 1 ? thresholds[p] : thresholds[p - 1] + w * (thresholds[p] - thresholds[p - 1]);
+            break;
+        }
+        return new Report(positives, negatives, Arrays.copyOf(fpr, points), Arrays.copyOf(tpr, points),
+                Arrays.copyOf(thresholds, points), (float) auc, eer, eerThreshold, latency.snapshot());
+    }
+
+    public static final class Report {
+        public final int genuinePairs;
+        public final int impostorPairs;
+        public final float auc;
+        public final float eer;
+        /** Score at which false accepts and false rejects are equal. */
+        public final float eerThreshold;
+        public final LatencyHistogram.Snapshot latency;
+        private final float[] fpr;
+        private final float[] tpr;
+        private final float[] thresholds;
+
+        Report(int genuinePairs, int impostorPairs, float[] fpr, float[] tpr, float[] thresholds,
+               float auc, float eer, float eerThreshold, LatencyHistogram.Snapshot latency) {
+            this.genuinePairs = genuinePairs;
+            this.impostorPairs = impostorPairs;
+            this.fpr = fpr;
+            this.tpr = tpr;
+            this.thresholds = thresholds;
+            this.auc = auc;
+            this.eer = eer;
+            this.eerThreshold = eerThreshold;
+            this.latency = latency;
+        }
+
+        /** Highest true accept rate whose false accept rate does not exceed {@code far}. */
+        public float tarAtFar(float far) {
+            float best = 0f;
+            for (int p = 0; p < fpr.length; p++) if (fpr[p] <= far && tpr[p] > best) best = tpr[p];
+            return best;
+        }
+
+        /** {@code {tar, far}} when accepting scores {@code >= threshold}, e.g. the app's pass threshold. */
+        public float[] ratesAt(float threshold) {
+            float[] r = {0f, 0f};
+            for (int p = 0; p < thresholds.length; p++) {
+                if (thresholds[p] < threshold) break;
+                r[0] = tpr[p];
+                r[1] = fpr[p];
+            }
+            return r;
+        }
+
+        public int rocPoints() {
+            return fpr.length;
+        }
+
+        public float rocFpr(int i) {
+            return fpr[i];
+        }
+
+        public float rocTpr(int i) {
+            return tpr[i];
+        }
+
+        public float rocThreshold(int i) {
+            return thresholds[i];
+        }
+
+        public String toJson(float operatingThreshold) {
+            float[] op = ratesAt(operatingThreshold);
+            StringBuilder sb = new StringBuilder("{");
+            sb.append("\"genuine\":").append(genuinePairs)
+                    .append(",\"impostor\":").append(impostorPairs)
+                    .append(",\"auc\":").append(fmt(auc))
+                    .append(",\"eer\":").append(fmt(eer))
+                    .append(",\"eerThreshold\":").append(fmt(eerThreshold))
+                    .append(",\"tarAtFar1e-2\":").append(fmt(tarAtFar(1e-2f)))
+                    .append(",\"tarAtFar1e-3\":").append(fmt(tarAtFar(1e-3f)))
+                    .append(",\"threshold\":").append(fmt(operatingThreshold))
+                    .append(",\"tar\":").append(fmt(op[0]))
+                    .append(",\"far\":").append(fmt(op[1]))
+                    .append(",\"latency\":");
+            latency.appendJson(sb);
+            return sb.append('}').toString();
+        }
+
+        private static String fmt(float v) {
+            return Float.isNaN(v) ? "null" : String.format(Locale.US, "%.4f", v);
+        }
+    }
+
+    /**
+     * {@code java -cp facelib-core.jar com.example.face.VerificationEval results.tsv [threshold] [roc.tsv]}
+     * prints the JSON report and optionally writes the ROC curve as {@code fpr tpr threshold} rows.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: VerificationEval <results.tsv> [threshold] [roc.tsv]");
+            System.exit(2);
+        }
+        Report report = readResults(new File(args[0])).report();
+        float threshold = args.length > 1 ? Float.parseFloat(args[1]) : 0.7f;
+        System.out.println(report.toJson(threshold));
+        if (args.length > 2) {
+            PrintStream out = new PrintStream(new File(args[2]), "UTF-8");
+            try {
+                for (int i = 0; i < report.rocPoints(); i++) {
+                    out.println(report.rocFpr(i) + "\t" + report.rocTpr(i) + "\t" + report.rocThreshold(i));
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static List<String[]> readRows(File file, String separator) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                rows.add(line.split(separator));
+            }
+        } finally {
+            reader.close();
+        }
+        return rows;
+    }
+}
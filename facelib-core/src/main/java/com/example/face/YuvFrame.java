@@ -0,0 +1,68 @@
+package com.example.face;
+
+/**
+ * A camera frame in YUV 4:2:0 layout. Plane data is referenced, not copied, so the caller must not
+ * reuse the arrays until the frame has been released.
+ */
+public final class YuvFrame {
+    public final int width;
+    public final int height;
+    public final int rotation;
+    final byte[] y;
+    final int yOffset;
+    final int yRowStride;
+    final byte[] u;
+    final int uOffset;
+    final byte[] v;
+    final int vOffset;
+    final int uvRowStride;
+    final int uvPixelStride;
+
+    private YuvFrame(int width, int height, int rotation, byte[] y, int yOffset, int yRowStride,
+                     byte[] u, int uOffset, byte[] v, int vOffset, int uvRowStride, int uvPixelStride) {
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("rotation must be 0, 90, 180 or 270");
+        }
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+        this.y = y;
+        this.yOffset = yOffset;
+        this.yRowStride = yRowStride;
+        this.u = u;
+        this.uOffset = uOffset;
+        this.v = v;
+        this.vOffset = vOffset;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+    }
+
+    /**
+     * Wraps an NV21 preview buffer. {@code rotation} is the clockwise rotation that makes the
+     * image upright.
+     */
+    public static YuvFrame nv21(byte[] data, int width, int height, int rotation) {
+        if (data.length < width * height * 3 / 2) throw new IllegalArgumentException("NV21 buffer too small");
+        int chroma = width * height;
+        return new YuvFrame(width, height, rotation, data, 0, width, data, chroma + 1, data, chroma, width, 2);
+    }
+
+    /** Wraps YUV_420_888 planes copied out of an {@code Image}, keeping their row and pixel strides. */
+    public static YuvFrame yuv420(byte[] y, int yRowStride, byte[] u, byte[] v, int uvRowStride, int uvPixelStride,
+                                  int width, int height, int rotation) {
+        return new YuvFrame(width, height, rotation, y, 0, yRowStride, u, 0, v, 0, uvRowStride, uvPixelStride);
+    }
+
+    /** The luma array, which for NV21 frames is the whole preview buffer. */
+    public byte[] data() {
+        return y;
+    }
+
+    public int uprightWidth() {
+        return rotation % 180 == 0 ? width : height;
+    }
+
+    public int uprightHeight() {
+        return rotation % 180 == 0 ? height : width;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.face;
+
+public final class YuvKernels {
+    private static final float[] ROT_0 = {1f, 0f, 0f, 0f, 1f, 0f};
+    private static final float[] ROT_90 = {0f, 1f, 0f, -1f, 0f, 1f};
+    private static final float[] ROT_180 = {-1f, 0f, 1f, 0f, -1f, 1f};
+    private static final float[] ROT_270 = {0f, -1f, 1f, 1f, 0f, 0f};
+
+    private YuvKernels() {}
+
+    /** Nearest-neighbour conversion of the upright frame to an {@code outWidth x outHeight} ARGB image. */
+    public static void toArgb(YuvFrame f, int outWidth, int outHeight, int[] out) {
+        float kx = (float) f.uprightWidth() / outWidth;
+        float ky = (float) f.uprightHeight() / outHeight;
+        float r0 = sensor(f, 0), r1 = sensor(f, 1), r2 = sensor(f, 2);
+        float r3 = sensor(f, 3), r4 = sensor(f, 4), r5 = sensor(f, 5);
+        int maxX = f.width - 1;
+        int maxY = f.height - 1;
+        int o = 0;
+        for (int oy = 0; oy < outHeight; oy++) {
+            float uy = (oy + 0.5f) * ky;
+            for (int ox = 0; ox < outWidth; ox++) {
+                float ux = (ox + 0.5f) * kx;
+                int sx = (int) (r0 * ux + r1 * uy + r2);
+                int sy = (int) (r3 * ux + r4 * uy + r5);
+                if (sx > maxX) sx = maxX;
+                if (sy > maxY) sy = maxY;
+                int luma = f.y[f.yOffset + sy * f.yRowStride + sx] & 0xFF;
+                int c = (sy >> 1) * f.uvRowStride + (sx >> 1) * f.uvPixelStride;
+                int cb = (f.u[f.uOffset + c] & 0xFF) - 128;
+                int cr = (f.v[f.vOffset + c] & 0xFF) - 128;
+                int red = clamp(luma + ((91881 * cr) >> 16));
+                int green = clamp(luma - ((22554 * cb + 46802 * cr) >> 16));
+                int blue = clamp(luma + ((116130 * cb) >> 16));
+                out[o++] = 0xFF000000 | (red << 16) | (green << 8) | blue;
+            }
+        }
+    }
+
+    /**
+     * YUV counterpart of {@link ImageKernels#warpAffineNormalize}: {@code m} maps output pixels to
+     * upright frame coordinates, luma is sampled bilinearly, chroma at the nearest sample, and the
+     * converted RGB is written normalized into {@code dst}.
+     */
+    public static void warpAffineNormalize(YuvFrame f, float[] m, boolean mirror, int outWidth, int outHeight,
+                                           float[] dst, int dstOffset) {
+        warpAffine(f, m, mirror, outWidth, outHeight, dst, null, 0, dstOffset);
+    }
+
+    /** 8-bit counterpart of {@link #warpAffineNormalize}, written like {@link ImageKernels#cropResizePixels}. */
+    public static void warpAffinePixels(YuvFrame f, float[] m, boolean mirror, int outWidth, int outHeight,
+                                        boolean signed, byte[] dst, int dstOffset) {
+        warpAffine(f, m, mirror, outWidth, outHeight, null, dst, signed ? 0x80 : 0, dstOffset);
+    }
+
+    private static void warpAffine(YuvFrame f, float[] m, boolean mirror, int outWidth, int outHeight,
+                                   float[] dst, byte[] bytes, int flip, int dstOffset) {
+        float r0 = sensor(f, 0), r1 = sensor(f, 1), r2 = sensor(f, 2);
+        float r3 = sensor(f, 3), r4 = sensor(f, 4), r5 = sensor(f, 5);
+        float a = r0 * m[0] + r1 * m[3];
+        float b = r0 * m[1] + r1 * m[4];
+        float c = r0 * m[2] + r1 * m[5] + r2;
+        float d = r3 * m[0] + r4 * m[3];
+        float e = r3 * m[1] + r4 * m[4];
+        float g = r3 * m[2] + r4 * m[5] + r5;
+        float inv = 1f / ImageKernels.STD;
+        float mean = ImageKernels.MEAN;
+        int maxX = f.width - 1;
+        int maxY = f.height - 1;
+        float stepX = mirror ? -a : a;
+        float stepY = mirror ? -d : d;
+        byte[] yPlane = f.y;
+        int o = dstOffset;
+        for (int oy = 0; oy < outHeight; oy++) {
+            float cx0 = mirror ? outWidth - 0.5f : 0.5f;
+            float py = oy + 0.5f;
+            float sxRow = a * cx0 + b * py + c - 0.5f;
+            float syRow = d * cx0 + e * py + g - 0.5f;
+            for (int ox = 0; ox < outWidth; ox++) {
+                float sx = sxRow + ox * stepX;
+                float sy = syRow + ox * stepY;
+                if (sx < 0f) sx = 0f;
+                if (sx > maxX) sx = maxX;
+                if (sy < 0f) sy = 0f;
+                if (sy > maxY) sy = maxY;
+                int x0 = (int) sx;
+                int y0 = (int) sy;
+                int x1 = x0 < maxX ? x0 + 1 : x0;
+                int y1 = y0 < maxY ? y0 + 1 : y0;
+                float fx = sx - x0;
+                float fy = sy - y0;
+                int row0 = f.yOffset + y0 * f.yRowStride;
+                int row1 = f.yOffset + y1 * f.yRowStride;
+                float top = (yPlane[row0 + x0] & 0xFF) * (1f - fx) + (yPlane[row0 + x1] & 0xFF) * fx;
+                float bottom = (yPlane[row1 + x0] & 0xFF) * (1f - fx) + (yPlane[row1 + x1] & 0xFF) * fx;
+                float luma = top + (bottom - top) * fy;
+                int ci = ((int) (sy + 0.5f) >> 1) * f.uvRowStride + ((int) (sx + 0.5f) >> 1) * f.uvPixelStride;
+                float cb = (f.u[f.uOffset + ci] & 0xFF) - 128f;
+                float cr = (f.v[f.vOffset + ci] & 0xFF) - 128f;
+                float red = clamp(luma + 1.402f * cr);
+                float green = clamp(luma - 0.344136f * cb - 0.714136f * cr);
+                float blue = clamp(luma + 1.772f * cb);
+                if (bytes != null) {
+                    bytes[o++] = (byte) ((int) (red + 0.5f) ^ flip);
+                    bytes[o++] = (byte) ((int) (green + 0.5f) ^ flip);
+                    bytes[o++] = (byte) ((int) (blue + 0.5f) ^ flip);
+                } else {
+                    dst[o++] = (red - mean) * inv;
+                    dst[o++] = (green - mean) * inv;
+                    dst[o++] = (blue - mean) * inv;
+                }
+            }
+        }
+    }
+
+    /**
+     * Coefficient {@code i} of the row-major 2x3 affine map from upright (display) coordinates to
+     * sensor coordinates for the frame's rotation.
+     */
+    static float sensor(YuvFrame f, int i) {
+        switch (f.rotation) {
+            case 90: return ROT_90[i] * (i == 5 ? f.height : 1);
+            case 180: return i == 2 ? f.width : i == 5 ? f.height : ROT_180[i];
+            case 270: return i == 2 ? f.width : ROT_270[i];
+            default: return ROT_0[i];
+        }
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : (v > 255 ? 255 : v);
+    }
+
+    private static float clamp(float v) {
+        return v < 0f ? 0f : (v > 255f ? 255f : v);
+    }
+}
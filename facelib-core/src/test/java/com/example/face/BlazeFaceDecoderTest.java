@@ -0,0 +1,111 @@
+package com.example.face;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BlazeFaceDecoderTest {
+    private static final int INPUT = 128;
+    private static final float HIGH = 4f;
+    private static final float LOW = 1f;
+
+    private BlazeFaceDecoder decoder;
+    private float[] regressors;
+    private float[] scores;
+    private final List<FaceBox> out = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        decoder = new BlazeFaceDecoder(INPUT);
+        regressors = new float[decoder.getNumAnchors() * BlazeFaceDecoder.NUM_COORDS];
+        scores = new float[decoder.getNumAnchors()];
+        Arrays.fill(scores, -10f);
+    }
+
+    /** A box of {@code size} input pixels on anchor {@code a}, offset by (dx, dy), eyes level at its center. */
+    private void place(int a, float logit, float dx, float dy, float size) {
+        scores[a] = logit;
+        int r = a * BlazeFaceDecoder.NUM_COORDS;
+        regressors[r] = dx;
+        regressors[r + 1] = dy;
+        regressors[r + 2] = size;
+        regressors[r + 3] = size;
+        for (int p = 0; p < BlazeFaceDecoder.NUM_KEYPOINTS; p++) {
+            regressors[r + 4 + 2 * p] = dx + (p == FaceBox.RIGHT_EYE ? -size / 4f : size / 4f);
+            regressors[r + 5 + 2 * p] = dy;
+        }
+    }
+
+    @Test
+    public void frontModelAnchorLayout() {
+        // 16x16 grid with 2 anchors per cell, then 8x8 with 3 layers of 2.
+        assertEquals(16 * 16 * 2 + 8 * 8 * 6, decoder.getNumAnchors());
+        float[] anchors = BlazeFaceDecoder.anchors(INPUT, new int[]{8, 16, 16, 16}, 2);
+        assertEquals(0.5f / 16, anchors[0], 1e-6f);
+        assertEquals(0.5f / 16, anchors[1], 1e-6f);
+        assertEquals(anchors[0], anchors[2], 0f);
+        int firstCoarse = 16 * 16 * 2;
+        assertEquals(0.5f / 8, anchors[2 * firstCoarse], 1e-6f);
+        assertEquals(7.5f / 8, anchors[anchors.length - 2], 1e-6f);
+    }
+
+    @Test
+    public void decodesBoxAndLandmarksIntoImageCoordinates() {
+        int a = 16 * 5 * 2 + 3 * 2; // row 5, column 3 of the stride-8 grid
+        place(a, HIGH, 2f, -4f, 32f);
+        assertEquals(1, decoder.decode(regressors, scores, 4, 10f, 20f, 256f, 256f, out));
+        FaceBox box = out.get(0);
+        float cx = (3.5f / 16 + 2f / INPUT) * 256f + 10f;
+        float cy = (5.5f / 16 - 4f / INPUT) * 256f + 20f;
+        assertEquals(cx - 32f, box.left, 1e-3f);
+        assertEquals(cy - 32f, box.top, 1e-3f);
+        assertEquals(cx + 32f, box.right, 1e-3f);
+        assertEquals(cy + 32f, box.bottom, 1e-3f);
+        assertEquals(1f / (1f + (float) Math.exp(-HIGH)), box.score, 1e-6f);
+        assertEquals(cx - 16f, box.landmarkX(FaceBox.RIGHT_EYE), 1e-3f);
+        assertEquals(cx + 16f, box.landmarkX(FaceBox.LEFT_EYE), 1e-3f);
+        assertEquals(cy, box.landmarkY(FaceBox.LEFT_EYE), 1e-3f);
+        assertEquals(BlazeFaceDecoder.NUM_KEYPOINTS, box.landmarkCount());
+    }
+
+    @Test
+    public void mergesOverlapsByScoreWeightedAverage() {
+        int a = 16 * 8 * 2 + 8 * 2;
+        place(a, HIGH, 0f, 0f, 40f);
+        place(a + 1, LOW, 4f, 0f, 40f);
+        assertEquals(1, decoder.decode(regressors, scores, 4, 0f, 0f, INPUT, INPUT, out));
+        float wHigh = 1f / (1f + (float) Math.exp(-HIGH));
+        float wLow = 1f / (1f + (float) Math.exp(-LOW));
+        float shift = 4f * wLow / (wHigh + wLow);
+        FaceBox box = out.get(0);
+        assertEquals(8.5f / 16 * INPUT - 20f + shift, box.left, 1e-3f);
+        assertEquals(wHigh, box.score, 1e-6f);
+    }
+
+    @Test
+    public void keepsSeparateFacesAndHonoursLimits() {
+        int left = 16 * 8 * 2 + 2 * 2;
+        int right = 16 * 8 * 2 + 13 * 2;
+        place(left, LOW, 0f, 0f, 24f);
+        place(right, HIGH, 0f, 0f, 24f);
+        assertEquals(2, decoder.decode(regressors, scores, 4, 0f, 0f, INPUT, INPUT, out));
+        // Highest score first.
+        assertEquals(13.5f / 16 * INPUT, (out.get(0).left + out.get(0).right) / 2f, 1e-3f);
+
+        out.clear();
+        assertEquals(1, decoder.decode(regressors, scores, 1, 0f, 0f, INPUT, INPUT, out));
+
+        out.clear();
+        decoder.setMinScore(0.9f);
+        assertEquals(1, decoder.decode(regressors, scores, 4, 0f, 0f, INPUT, INPUT, out));
+        decoder.setMinScore(0.99f);
+        out.clear();
+        assertEquals(0, decoder.decode(regressors, scores, 4, 0f, 0f, INPUT, INPUT, out));
+        assertEquals(0, out.size());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.face;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FaceQualityGateTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 320;
+
+    private final int[] pixels = TestData.argbImage(new Random(3), WIDTH, HEIGHT);
+
+    @Test
+    public void rejectsTiltedMeasuredEyes() {
+        FaceBox tilted = new FaceBox(100f, 100f, 220f, 220f, 0.9f, new float[]{130f, 140f, 190f, 180f});
+        FaceQualityGate.Result r = new FaceQualityGate().check(pixels, WIDTH, HEIGHT, tilted);
+        assertEquals(FaceQualityGate.Rejection.POSE, r.rejection);
+        assertTrue(r.rollDegrees > 25f);
+    }
+
+    @Test
+    public void skipsPoseForSynthesizedEyes() {
+        // Level eyes placed from a midpoint and distance, in a box far wider than a frontal face's.
+        FaceBox legacy = new FaceBox(60f, 100f, 260f, 220f, 0.9f, new float[]{135f, 140f, 185f, 140f}, false);
+        assertFalse(legacy.hasMeasuredLandmarks());
+        FaceQualityGate.Result r = new FaceQualityGate().check(pixels, WIDTH, HEIGHT, legacy);
+        assertTrue(r.rejection != FaceQualityGate.Rejection.POSE);
+        assertEquals(0f, r.yawDegrees, 0f);
+        assertEquals(50f, r.eyeDistance, 1e-4f);
+    }
+
+    @Test
+    public void synthesizedEyesStillGateSize() {
+        FaceBox small = new FaceBox(100f, 100f, 124f, 124f, 0.9f, new float[]{107f, 110f, 117f, 110f}, false);
+        FaceQualityGate.Result r = new FaceQualityGate().check(pixels, WIDTH, HEIGHT, small);
+        assertEquals(FaceQualityGate.Rejection.TOO_SMALL, r.rejection);
+    }
+
+    @Test
+    public void mirroredAndScaledKeepLandmarkOrigin() {
+        FaceBox legacy = new FaceBox(60f, 100f, 260f, 220f, 0.9f, new float[]{135f, 140f, 185f, 140f}, false);
+        assertFalse(legacy.mirrored(WIDTH).hasMeasuredLandmarks());
+        assertFalse(legacy.scaled(2f, 2f).hasMeasuredLandmarks());
+        assertFalse(new FaceBox(0f, 0f, 10f, 10f, 0.5f, null).hasMeasuredLandmarks());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.face;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FaceTemplateTest {
+    private static final String TAG = "mobile_face_net.tflite";
+
+    @Test
+    public void roundTripsThroughFloat16() {
+        Random random = new Random(1);
+        for (int n = 0; n < 20; n++) {
+            float[] e = TestData.unitVector(random, 128);
+            String text = FaceTemplate.encode(e, TAG);
+            assertEquals(352, text.length());
+            float[] back = FaceTemplate.decode(text, TAG);
+            assertNotNull(back);
+            assertEquals(128, back.length);
+            for (int i = 0; i < e.length; i++) assertEquals(e[i], back[i], 5e-4f);
+            assertTrue(VectorMath.cosine(e, back) > 0.99999f);
+        }
+    }
+
+    @Test
+    public void rejectsAnotherModel() {
+        float[] e = TestData.unitVector(new Random(2), 128);
+        String text = FaceTemplate.encode(e, TAG);
+        assertNull(FaceTemplate.decode(text, "mobile_face_net_int8.tflite"));
+        assertNull(FaceTemplate.decode(text, ""));
+    }
+
+    @Test
+    public void rejectsMalformedText() {
+        String text = FaceTemplate.encode(TestData.unitVector(new Random(3), 128), TAG);
+        assertNull(FaceTemplate.decode(null, TAG));
+        assertNull(FaceTemplate.decode("", TAG));
+        assertNull(FaceTemplate.decode("abc", TAG));
+        assertNull(FaceTemplate.decode("!!!!", TAG));
+        assertNull(FaceTemplate.decode(text.substring(0, text.length() - 4), TAG));
+        // Version byte lives in the first base64 character.
+        assertNull(FaceTemplate.decode((text.charAt(0) == 'A' ? 'B' : 'A') + text.substring(1), TAG));
+    }
+
+    @Test
+    public void halfConversionIsExactForRepresentableValues() {
+        float[] exact = {0f, 1f, -2f, 0.5f, 0.099975586f, 65504f, -65504f, 6.1035156e-5f, 5.9604645e-8f};
+        for (float f : exact) assertEquals(f, FaceTemplate.fromHalf(FaceTemplate.toHalf(f)), 0f);
+        assertEquals(Float.POSITIVE_INFINITY, FaceTemplate.fromHalf(FaceTemplate.toHalf(1e6f)), 0f);
+        assertEquals(0f, FaceTemplate.fromHalf(FaceTemplate.toHalf(1e-10f)), 0f);
+    }
+
+    @Test
+    public void averageIsNormalized() {
+        Random random = new Random(4);
+        float[][] shots = {TestData.unitVector(random, 64), TestData.unitVector(random, 64), TestData.unitVector(random, 64)};
+        float[] mean = FaceTemplate.average(shots);
+        float norm = 0f;
+        for (float v : mean) norm += v * v;
+        assertEquals(1f, norm, 1e-5f);
+        for (float[] shot : shots) assertTrue(VectorMath.cosine(mean, shot) > 0f);
+    }
+}
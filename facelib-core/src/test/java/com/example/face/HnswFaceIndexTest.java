@@ -0,0 +1,114 @@
+package com.example.face;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HnswFaceIndexTest {
+    private static final int DIM = 32;
+    private static final int COUNT = 1000;
+
+    private static HnswFaceIndex filled(float[][] vectors) {
+        HnswFaceIndex index = new HnswFaceIndex(DIM, 16, 200, 64, 42L);
+        for (int i = 0; i < vectors.length; i++) index.put("user-" + i, vectors[i]);
+        return index;
+    }
+
+    private static float[][] vectors(long seed, int count) {
+        Random random = new Random(seed);
+        float[][] out = new float[count][];
+        for (int i = 0; i < count; i++) out[i] = TestData.unitVector(random, DIM);
+        return out;
+    }
+
+    @Test
+    public void findsEveryInsertedVector() {
+        float[][] v = vectors(1, COUNT);
+        HnswFaceIndex index = filled(v);
+        assertEquals(COUNT, index.size());
+        for (int i = 0; i < COUNT; i++) {
+            FaceMatch[] top = index.search(v[i], 1);
+            assertEquals("user-" + i, top[0].id);
+            assertEquals(1f, top[0].score, 1e-4f);
+        }
+    }
+
+    @Test
+    public void agreesWithFlatScanOnTopMatch() {
+        float[][] v = vectors(2, COUNT);
+        HnswFaceIndex hnsw = filled(v);
+        FlatFaceIndex flat = new FlatFaceIndex(DIM, COUNT);
+        for (int i = 0; i < COUNT; i++) flat.put("user-" + i, v[i]);
+        Random random = new Random(3);
+        for (int q = 0; q < 100; q++) {
+            float[] probe = TestData.unitVector(random, DIM);
+            assertEquals(flat.search(probe, 1)[0].id, hnsw.search(probe, 1)[0].id);
+        }
+    }
+
+    @Test
+    public void removedIdsAreNeverReturned() {
+        float[][] v = vectors(4, COUNT);
+        HnswFaceIndex index = filled(v);
+        for (int i = 0; i < COUNT; i += 3) assertTrue(index.remove("user-" + i));
+        assertFalse(index.remove("user-0"));
+        assertFalse(index.remove("nobody"));
+        int removed = (COUNT + 2) / 3;
+        assertEquals(COUNT - removed, index.size());
+        for (int i = 0; i < COUNT; i++) {
+            FaceMatch[] top = index.search(v[i], 5);
+            for (FaceMatch m : top) assertTrue(m.id + " was removed", Integer.parseInt(m.id.substring(5)) % 3 != 0);
+            if (i % 3 != 0) assertEquals("user-" + i, top[0].id);
+        }
+    }
+
+    @Test
+    public void survivesCompactionAfterMassRemoval() {
+        float[][] v = vectors(5, COUNT);
+        HnswFaceIndex index = filled(v);
+        for (int i = 0; i < COUNT; i++) if (i % 4 != 0) index.remove("user-" + i);
+        assertEquals(COUNT / 4, index.size());
+        for (int i = 0; i < COUNT; i += 4) assertEquals("user-" + i, index.search(v[i], 1)[0].id);
+        index.put("late", v[1]);
+        assertEquals("late", index.search(v[1], 1)[0].id);
+    }
+
+    @Test
+    public void putReplacesAnExistingId() {
+        float[][] v = vectors(6, 100);
+        HnswFaceIndex index = filled(v);
+        index.put("user-7", v[50]);
+        assertEquals(100, index.size());
+        FaceMatch[] top = index.search(v[7], 100);
+        for (FaceMatch m : top) {
+            if (m.id.equals("user-7")) assertTrue(m.score < 0.99f);
+        }
+        FaceMatch[] moved = index.search(v[50], 2);
+        assertEquals(1f, moved[0].score, 1e-4f);
+        assertEquals(1f, moved[1].score, 1e-4f);
+    }
+
+    @Test
+    public void emptyIndexAndBadInput() {
+        HnswFaceIndex index = new HnswFaceIndex(DIM);
+        float[][] v = vectors(7, 2);
+        assertEquals(0, index.search(v[0], 3).length);
+        index.put("only", v[0]);
+        assertEquals(1, index.search(v[1], 3).length);
+        try {
+            index.put("bad", new float[DIM + 1]);
+            fail("dimension mismatch accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new HnswFaceIndex(DIM, 1, 200, 64, 42L);
+            fail("m < 2 accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.face;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ImageKernelsTest {
+    private static final int W = 96;
+    private static final int H = 80;
+    private static final int OUT = 40;
+
+    private final int[] pixels = TestData.argbImage(new Random(1), W, H);
+
+    private static float channel(int argb, int shift) {
+        return (((argb >> shift) & 0xFF) - ImageKernels.MEAN) / ImageKernels.STD;
+    }
+
+    @Test
+    public void fullFrameCropAtNativeSizeIsANormalizedCopy() {
+        float[] out = new float[W * H * 3];
+        ImageKernels.cropResizeNormalize(pixels, W, H, 0f, 0f, W, H, false, W, H, out, 0);
+        for (int i = 0; i < W * H; i++) {
+            assertEquals(channel(pixels[i], 16), out[3 * i], 1e-5f);
+            assertEquals(channel(pixels[i], 8), out[3 * i + 1], 1e-5f);
+            assertEquals(channel(pixels[i], 0), out[3 * i + 2], 1e-5f);
+        }
+    }
+
+    @Test
+    public void mirrorReversesEachRow() {
+        float[] plain = new float[OUT * OUT * 3];
+        float[] mirrored = new float[OUT * OUT * 3];
+        ImageKernels.cropResizeNormalize(pixels, W, H, 10f, 5f, 60f, 70f, false, OUT, OUT, plain, 0);
+        ImageKernels.cropResizeNormalize(pixels, W, H, 10f, 5f, 60f, 70f, true, OUT, OUT, mirrored, 0);
+        for (int y = 0; y < OUT; y++) {
+            for (int x = 0; x < OUT; x++) {
+                for (int c = 0; c < 3; c++) {
+                    assertEquals(plain[(y * OUT + x) * 3 + c], mirrored[(y * OUT + OUT - 1 - x) * 3 + c], 1e-5f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void axisAlignedWarpMatchesCropResize() {
+        float left = 12.25f, top = 7.5f, cw = 50f, ch = 62f;
+        float[] m = {cw / OUT, 0f, left, 0f, ch / OUT, top};
+        for (boolean mirror : new boolean[]{false, true}) {
+            float[] crop = new float[OUT * OUT * 3];
+            float[] warp = new float[OUT * OUT * 3];
+            ImageKernels.cropResizeNormalize(pixels, W, H, left, top, cw, ch, mirror, OUT, OUT, crop, 0);
+            ImageKernels.warpAffineNormalize(pixels, W, H, m, mirror, OUT, OUT, warp, 0);
+            assertArrayEquals(crop, warp, 1e-4f);
+        }
+    }
+
+    @Test
+    public void warpClampsOutsideSamplesToTheEdge() {
+        // Translate the whole window past the right edge: every sample reads the last column.
+        float[] m = {1f, 0f, W + 50f, 0f, 1f, 0f};
+        float[] out = new float[OUT * OUT * 3];
+        ImageKernels.warpAffineNormalize(pixels, W, H, m, false, OUT, OUT, out, 0);
+        for (int y = 0; y < OUT; y++) {
+            int edge = pixels[y * W + W - 1];
+            for (int x = 0; x < OUT; x++) assertEquals(channel(edge, 16), out[(y * OUT + x) * 3], 1e-5f);
+        }
+    }
+
+    @Test
+    public void writesAtTheDestinationOffset() {
+        float[] out = new float[5 + OUT * OUT * 3];
+        out[4] = 42f;
+        ImageKernels.cropResizeNormalize(pixels, W, H, 0f, 0f, W, H, false, OUT, OUT, out, 5);
+        assertEquals(42f, out[4], 0f);
+        float[] alone = new float[OUT * OUT * 3];
+        ImageKernels.cropResizeNormalize(pixels, W, H, 0f, 0f, W, H, false, OUT, OUT, alone, 0);
+        for (int i = 0; i < alone.length; i++) assertEquals(alone[i], out[5 + i], 0f);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.face;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProductQuantizerTest {
+    private static final int DIM = 32;
+    private static final int SUBSPACES = 8;
+    private static final int SUB_DIM = DIM / SUBSPACES;
+    private static final int COUNT = 600;
+
+    private final float[] data = data(new Random(1), COUNT);
+    private final ProductQuantizer pq = ProductQuantizer.train(data, COUNT, DIM, SUBSPACES, 5, 7L);
+
+    private static float[] data(Random random, int count) {
+        float[] out = new float[count * DIM];
+        for (int i = 0; i < count; i++) System.arraycopy(TestData.unitVector(random, DIM), 0, out, i * DIM, DIM);
+        return out;
+    }
+
+    @Test
+    public void encodesEachSubspaceToItsNearestCentroid() {
+        float[] codebooks = pq.getCodebooks();
+        byte[] codes = new byte[SUBSPACES];
+        for (int i = 0; i < 50; i++) {
+            pq.encode(data, i * DIM, codes, 0);
+            for (int s = 0; s < SUBSPACES; s++) {
+                int best = -1;
+                float bestDist = Float.POSITIVE_INFINITY;
+                for (int c = 0; c < ProductQuantizer.CENTROIDS; c++) {
+                    float d = 0f;
+                    for (int j = 0; j < SUB_DIM; j++) {
+                        float diff = data[i * DIM + s * SUB_DIM + j]
+                                - codebooks[(s * ProductQuantizer.CENTROIDS + c) * SUB_DIM + j];
+                        d += diff * diff;
+                    }
+                    if (d < bestDist) {
+                        bestDist = d;
+                        best = c;
+                    }
+                }
+                assertEquals(best, codes[s] & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void decodeReturnsTheChosenCentroids() {
+        byte[] codes = {0, 1, 2, (byte) 200, (byte) 255, 17, 64, (byte) 128};
+        float[] out = new float[DIM];
+        pq.decode(codes, 0, out, 0);
+        float[] codebooks = pq.getCodebooks();
+        for (int s = 0; s < SUBSPACES; s++) {
+            for (int j = 0; j < SUB_DIM; j++) {
+                int c = codes[s] & 0xFF;
+                assertEquals(codebooks[(s * ProductQuantizer.CENTROIDS + c) * SUB_DIM + j], out[s * SUB_DIM + j], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void tableScoreEqualsDotWithDecodedVector() {
+        Random random = new Random(2);
+        byte[] codes = new byte[SUBSPACES];
+        float[] decoded = new float[DIM];
+        float[] table = new float[SUBSPACES * ProductQuantizer.CENTROIDS];
+        for (int i = 0; i < 20; i++) {
+            float[] q = TestData.unitVector(random, DIM);
+            pq.encode(data, i * DIM, codes, 0);
+            pq.decode(codes, 0, decoded, 0);
+            pq.distanceTable(q, 0, table);
+            assertEquals(FlatFaceIndex.dot(q, 0, decoded, 0, DIM), pq.score(table, codes, 0), 1e-5f);
+        }
+    }
+
+    @Test
+    public void trainingIsDeterministicForASeed() {
+        ProductQuantizer again = ProductQuantizer.train(data, COUNT, DIM, SUBSPACES, 5, 7L);
+        assertArrayEquals(pq.getCodebooks(), again.getCodebooks(), 0f);
+        assertEquals(SUBSPACES, pq.codeSize());
+        assertEquals(DIM, pq.dimension());
+    }
+
+    @Test
+    public void quantizedIndexFindsEncodedVectors() {
+        QuantizedFaceIndex index = new QuantizedFaceIndex(pq);
+        for (int i = 0; i < COUNT; i++) {
+            float[] v = new float[DIM];
+            System.arraycopy(data, i * DIM, v, 0, DIM);
+            index.put("user-" + i, v);
+        }
+        assertEquals(SUBSPACES, index.bytesPerVector());
+        int hits = 0;
+        for (int i = 0; i < 100; i++) {
+            float[] v = new float[DIM];
+            System.arraycopy(data, i * DIM, v, 0, DIM);
+            if (index.search(v, 1)[0].id.equals("user-" + i)) hits++;
+        }
+        assertTrue(hits + " of 100 found", hits >= 95);
+    }
+
+    @Test
+    public void rejectsBadShapes() {
+        try {
+            ProductQuantizer.train(data, COUNT, DIM, 5, 1, 7L);
+            fail("dim not divisible by subspaces accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new ProductQuantizer(DIM, SUBSPACES, new float[10]);
+            fail("codebook size mismatch accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            ProductQuantizer.train(data, 0, DIM, SUBSPACES, 1, 7L);
+            fail("empty training set accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.face;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TensorQuantizationTest {
+    private static final int W = 96;
+    private static final int H = 80;
+    private static final int OUT = 40;
+
+    private final int[] pixels = TestData.argbImage(new Random(1), W, H);
+
+    @Test
+    public void exportedPixelParamsAreIdentity() {
+        // What a post-training quantized export of a [-1, 1] float model carries on its input.
+        assertTrue(new TensorQuantization(false, 1f / 128, 128f).isPixelIdentity());
+        assertTrue(new TensorQuantization(true, 1f / 128, 0f).isPixelIdentity());
+        assertTrue(TensorQuantization.forPixels(false).isPixelIdentity());
+        assertTrue(TensorQuantization.forPixels(true).isPixelIdentity());
+        assertFalse(new TensorQuantization(false, 1f / 64, 128f).isPixelIdentity());
+        assertFalse(new TensorQuantization(false, 1f / 255, 0f).isPixelIdentity());
+        assertFalse(new TensorQuantization(false, 1f / 128, 120f).isPixelIdentity());
+    }
+
+    @Test
+    public void quantizingNormalizedPixelsWithExportParamsIsOffByOne() {
+        // Why identity params skip the float staging: quantize rounds p + 0.5 up.
+        TensorQuantization q = new TensorQuantization(false, 1f / 128, 128f);
+        float[] normalized = new float[256];
+        for (int p = 0; p < 256; p++) normalized[p] = (p - ImageKernels.MEAN) / ImageKernels.STD;
+        ByteBuffer out = ByteBuffer.allocate(256);
+        q.quantize(normalized, 0, 256, out);
+        assertEquals(1, out.get(0) & 0xFF);
+        assertEquals(101, out.get(100) & 0xFF);
+        assertEquals(255, out.get(254) & 0xFF);
+        assertEquals(255, out.get(255) & 0xFF);
+    }
+
+    @Test
+    public void pixelKernelWritesRawBytesAtNativeSize() {
+        byte[] unsigned = new byte[W * H * 3];
+        byte[] signed = new byte[W * H * 3];
+        ImageKernels.cropResizePixels(pixels, W, H, 0f, 0f, W, H, false, W, H, false, unsigned, 0);
+        ImageKernels.cropResizePixels(pixels, W, H, 0f, 0f, W, H, false, W, H, true, signed, 0);
+        TensorQuantization u8 = new TensorQuantization(false, 1f / 128, 128f);
+        TensorQuantization s8 = new TensorQuantization(true, 1f / 128, 0f);
+        for (int i = 0; i < W * H; i++) {
+            int r = (pixels[i] >> 16) & 0xFF;
+            int b = pixels[i] & 0xFF;
+            assertEquals(r, unsigned[3 * i] & 0xFF);
+            assertEquals(b, unsigned[3 * i + 2] & 0xFF);
+            assertEquals(r - 128, signed[3 * i]);
+            // Both encodings dequantize to the same real value.
+            assertEquals(u8.dequantize(unsigned[3 * i]), s8.dequantize(signed[3 * i]), 1e-6f);
+            assertEquals((r - ImageKernels.MEAN) / ImageKernels.STD, u8.dequantize(unsigned[3 * i]), 0.5f / 128 + 1e-6f);
+        }
+    }
+
+    @Test
+    public void pixelKernelsRoundTheFloatKernels() {
+        float[] floats = new float[OUT * OUT * 3];
+        byte[] bytes = new byte[OUT * OUT * 3];
+        ImageKernels.cropResizeNormalize(pixels, W, H, 10f, 5f, 60f, 70f, true, OUT, OUT, floats, 0);
+        ImageKernels.cropResizePixels(pixels, W, H, 10f, 5f, 60f, 70f, true, OUT, OUT, false, bytes, 0);
+        assertRounded(floats, bytes);
+
+        float[] m = {1.3f, 0.2f, 8f, -0.2f, 1.3f, 12f};
+        ImageKernels.warpAffineNormalize(pixels, W, H, m, false, OUT, OUT, floats, 0);
+        ImageKernels.warpAffinePixels(pixels, W, H, m, false, OUT, OUT, false, bytes, 0);
+        assertRounded(floats, bytes);
+
+        YuvFrame frame = YuvFrame.nv21(TestData.nv21(new Random(2), 64, 48), 64, 48, 90);
+        YuvKernels.warpAffineNormalize(frame, m, true, OUT, OUT, floats, 0);
+        YuvKernels.warpAffinePixels(frame, m, true, OUT, OUT, false, bytes, 0);
+        assertRounded(floats, bytes);
+    }
+
+    private static void assertRounded(float[] normalized, byte[] pixels) {
+        for (int i = 0; i < normalized.length; i++) {
+            float p = normalized[i] * ImageKernels.STD + ImageKernels.MEAN;
+            assertEquals(p, pixels[i] & 0xFF, 0.5f + 1e-3f);
+        }
+    }
+}
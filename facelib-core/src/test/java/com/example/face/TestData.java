@@ -0,0 +1,35 @@
+package com.example.face;
+
+import java.util.Random;
+
+/** Deterministic synthetic inputs shared by the tests. */
+final class TestData {
+    private TestData() {}
+
+    static float[] unitVector(Random random, int dim) {
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) v[i] = (float) random.nextGaussian();
+        VectorMath.normalizeL2(v);
+        return v;
+    }
+
+    /** A smooth gradient with some texture, so resampling kernels touch realistic values. */
+    static int[] argbImage(Random random, int width, int height) {
+        int[] px = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(16)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(16)) & 0xFF;
+                px[y * width + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return px;
+    }
+
+    static byte[] nv21(Random random, int width, int height) {
+        byte[] data = new byte[width * height * 3 / 2];
+        random.nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.face;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class YuvKernelsTest {
+    private static final int W = 64;
+    private static final int H = 48;
+    private static final int[] ROTATIONS = {0, 90, 180, 270};
+
+    private final byte[] nv21 = TestData.nv21(new Random(1), W, H);
+
+    /** A frame with the given luma and neutral chroma, so RGB equals luma exactly. */
+    private static byte[] gray(byte[] luma) {
+        byte[] data = new byte[W * H * 3 / 2];
+        System.arraycopy(luma, 0, data, 0, W * H);
+        Arrays.fill(data, W * H, data.length, (byte) 128);
+        return data;
+    }
+
+    /** Sensor coordinates of upright pixel (x, y) for a clockwise rotation. */
+    private static int sensorIndex(int rotation, int x, int y) {
+        switch (rotation) {
+            case 90: return (H - 1 - x) * W + y;
+            case 180: return (H - 1 - y) * W + (W - 1 - x);
+            case 270: return x * W + (W - 1 - y);
+            default: return y * W + x;
+        }
+    }
+
+    @Test
+    public void neutralChromaGivesGrayRgbAtEveryRotation() {
+        byte[] luma = new byte[W * H];
+        new Random(2).nextBytes(luma);
+        byte[] data = gray(luma);
+        float[] m = {1f, 0f, 0f, 0f, 1f, 0f};
+        for (int rotation : ROTATIONS) {
+            YuvFrame f = YuvFrame.nv21(data, W, H, rotation);
+            int uw = f.uprightWidth();
+            int uh = f.uprightHeight();
+            float[] out = new float[uw * uh * 3];
+            YuvKernels.warpAffineNormalize(f, m, false, uw, uh, out, 0);
+            for (int y = 0; y < uh; y++) {
+                for (int x = 0; x < uw; x++) {
+                    float expected = ((luma[sensorIndex(rotation, x, y)] & 0xFF) - ImageKernels.MEAN) / ImageKernels.STD;
+                    int o = (y * uw + x) * 3;
+                    assertEquals("rotation " + rotation, expected, out[o], 1e-5f);
+                    assertEquals(expected, out[o + 1], 1e-5f);
+                    assertEquals(expected, out[o + 2], 1e-5f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fusedWarpMatchesConvertThenWarp() {
+        // Whole-pixel translation so both paths sample the same pixels; the conversions differ only
+        // in fixed- versus floating-point rounding.
+        float[] m = {1f, 0f, 3f, 0f, 1f, 5f};
+        int out = 32;
+        for (int rotation : ROTATIONS) {
+            YuvFrame f = YuvFrame.nv21(nv21, W, H, rotation);
+            int uw = f.uprightWidth();
+            int uh = f.uprightHeight();
+            int[] argb = new int[uw * uh];
+            YuvKernels.toArgb(f, uw, uh, argb);
+            float[] twoStep = new float[out * out * 3];
+            float[] fused = new float[out * out * 3];
+            ImageKernels.warpAffineNormalize(argb, uw, uh, m, false, out, out, twoStep, 0);
+            YuvKernels.warpAffineNormalize(f, m, false, out, out, fused, 0);
+            assertArrayEquals("rotation " + rotation, twoStep, fused, 2.5f / ImageKernels.STD);
+        }
+    }
+
+    @Test
+    public void mirrorReversesEachRow() {
+        float[] m = {1.5f, 0f, 4f, 0f, 1.5f, 2f};
+        int out = 24;
+        YuvFrame f = YuvFrame.nv21(nv21, W, H, 270);
+        float[] plain = new float[out * out * 3];
+        float[] mirrored = new float[out * out * 3];
+        YuvKernels.warpAffineNormalize(f, m, false, out, out, plain, 0);
+        YuvKernels.warpAffineNormalize(f, m, true, out, out, mirrored, 0);
+        for (int y = 0; y < out; y++) {
+            for (int x = 0; x < out; x++) {
+                for (int c = 0; c < 3; c++) {
+                    assertEquals(plain[(y * out + x) * 3 + c], mirrored[(y * out + out - 1 - x) * 3 + c], 1e-4f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void toArgbKeepsUprightOrientation() {
+        byte[] luma = new byte[W * H];
+        new Random(3).nextBytes(luma);
+        byte[] data = gray(luma);
+        for (int rotation : ROTATIONS) {
+            YuvFrame f = YuvFrame.nv21(data, W, H, rotation);
+            int uw = f.uprightWidth();
+            int uh = f.uprightHeight();
+            int[] argb = new int[uw * uh];
+            YuvKernels.toArgb(f, uw, uh, argb);
+            for (int y = 0; y < uh; y++) {
+                for (int x = 0; x < uw; x++) {
+                    int l = luma[sensorIndex(rotation, x, y)] & 0xFF;
+                    assertEquals("rotation " + rotation, 0xFF000000 | (l << 16) | (l << 8) | l, argb[y * uw + x]);
+                }
+            }
+        }
+    }
+}
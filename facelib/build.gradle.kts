@@ -17,6 +17,7 @@ android {
 }
 
 dependencies {
+    api(project(":facelib-core"))
     implementation("androidx.appcompat:appcompat:1.6.1")
     implementation("org.tensorflow:tensorflow-lite:2.12.0")
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.example.face;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BlazeFaceDetector {
+    private final Interpreter interpreter;
+    private final BlazeFaceDecoder decoder;
+    private final int inputSize;
+    private final ByteBuffer inputBuffer;
+    private final FloatBuffer inputFloats;
+    private final ByteBuffer regressorBuffer;
+    private final ByteBuffer scoreBuffer;
+    private final FloatBuffer regressorFloats;
+    private final FloatBuffer scoreFloats;
+    private final Map<Integer, Object> outputs = new HashMap<>();
+    private final float[] tensorScratch;
+    private final float[] regressors;
+    private final float[] scores;
+    private final int[] pixels;
+    private final Bitmap surface;
+    private final Canvas canvas;
+    private final Paint scalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect srcRect = new Rect();
+    private final Rect dstRect = new Rect();
+
+    public BlazeFaceDetector(Context context, String modelAssetName) {
+        this.interpreter = TfLiteModels.newInterpreter(context, modelAssetName);
+        int[] in = interpreter.getInputTensor(0).shape();
+        this.inputSize = in[1];
+        this.decoder = new BlazeFaceDecoder(inputSize);
+        int numAnchors = decoder.getNumAnchors();
+        int regIndex = -1;
+        int scoreIndex = -1;
+        for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+            Tensor t = interpreter.getOutputTensor(i);
+            int[] shape = t.shape();
+            if (shape.length < 2 || shape[1] != numAnchors) continue;
+            if (shape[shape.length - 1] == BlazeFaceDecoder.NUM_COORDS) regIndex = i;
+            else if (shape[shape.length - 1] == 1) scoreIndex = i;
+        }
+        if (regIndex < 0 || scoreIndex < 0) {
+            interpreter.close();
+            throw new IllegalStateException("unexpected BlazeFace output layout for " + modelAssetName);
+        }
+        this.inputBuffer = allocate(inputSize * inputSize * 3);
+        this.inputFloats = inputBuffer.asFloatBuffer();
+        this.regressorBuffer = allocate(numAnchors * BlazeFaceDecoder.NUM_COORDS);
+        this.scoreBuffer = allocate(numAnchors);
+        this.regressorFloats = regressorBuffer.asFloatBuffer();
+        this.scoreFloats = scoreBuffer.asFloatBuffer();
+        outputs.put(regIndex, regressorBuffer);
+        outputs.put(scoreIndex, scoreBuffer);
+        this.tensorScratch = new float[inputSize * inputSize * 3];
+        this.regressors = new float[numAnchors * BlazeFaceDecoder.NUM_COORDS];
+        this.scores = new float[numAnchors];
+        this.pixels = new int[inputSize * inputSize];
+        this.surface = Bitmap.createBitmap(inputSize, inputSize, Bitmap.Config.ARGB_8888);
+        this.canvas = new Canvas(surface);
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public BlazeFaceDecoder getDecoder() {
+        return decoder;
+    }
+
+    public synchronized int detect(Bitmap src, int maxFaces, List<FaceBox> out) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        float side = Math.max(w, h);
+        float scale = inputSize / side;
+        int dw = Math.round(w * scale);
+        int dh = Math.round(h * scale);
+        int dx = (inputSize - dw) / 2;
+        int dy = (inputSize - dh) / 2;
+        canvas.drawColor(Color.BLACK);
+        srcRect.set(0, 0, w, h);
+        dstRect.set(dx, dy, dx + dw, dy + dh);
+        canvas.drawBitmap(src, srcRect, dstRect, scalePaint);
+        surface.getPixels(pixels, 0, inputSize, 0, 0, inputSize, inputSize);
+        ImageKernels.cropResizeNormalize(pixels, inputSize, inputSize, 0f, 0f, inputSize, inputSize, false,
+                inputSize, inputSize, tensorScratch, 0);
+        return run(maxFaces, -dx / scale, -dy / scale, side, side, out);
+    }
+
+    /**
+     * Detects on raw ARGB pixels (e.g. a converted camera frame) by sampling a letterboxed square
+     * straight into the input tensor.
+     */
+    public synchronized int detect(int[] argb, int width, int height, int maxFaces, List<FaceBox> out) {
+        float side = Math.max(width, height);
+        float left = (width - side) / 2f;
+        float top = (height - side) / 2f;
+        ImageKernels.cropResizeNormalize(argb, width, height, left, top, side, side, false,
+                inputSize, inputSize, tensorScratch, 0);
+        return run(maxFaces, left, top, side, side, out);
+    }
+
+    public synchronized void close() {
+        interpreter.close();
+    }
+
+    private int run(int maxFaces, float offsetX, float offsetY, float scaleX, float scaleY, List<FaceBox> out) {
+        inputFloats.rewind();
+        inputFloats.put(tensorScratch);
+        inputBuffer.rewind();
+        regressorBuffer.rewind();
+        scoreBuffer.rewind();
+        interpreter.runForMultipleInputsOutputs(new Object[]{inputBuffer}, outputs);
+        regressorFloats.rewind();
+        regressorFloats.get(regressors);
+        scoreFloats.rewind();
+        scoreFloats.get(scores);
+        return decoder.decode(regressors, scores, maxFaces, offsetX, offsetY, scaleX, scaleY, out);
+    }
+
+    private static ByteBuffer allocate(int floats) {
+        ByteBuffer b = ByteBuffer.allocateDirect(floats * 4);
+        b.order(ByteOrder.nativeOrder());
+        return b;
+    }
+}
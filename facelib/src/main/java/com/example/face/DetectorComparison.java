@@ -0,0 +1,112 @@
+package com.example.face;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the BlazeFace TFLite detector and the legacy {@link android.media.FaceDetector} path side by
+ * side over every image in a directory, recording per-image face counts and latency for each. Both
+ * detectors see the same decoded bitmap; the legacy path downsamples to {@code maxDetectDim} exactly
+ * as {@link FaceDetectionCache} does, so running it at 512 and 1600 shows what the routing threshold
+ * {@link FaceDetectionCache#TFLITE_MAX_DETECT_DIM} trades. Like {@link VerificationHarness} this is
+ * meant for an instrumentation run on a device; results are written as tab-separated
+ * {@code image blazeFaces blazeUs legacyFaces legacyUs} rows.
+ */
+public final class DetectorComparison {
+    private DetectorComparison() {}
+
+    public static final class Report {
+        public final int images;
+        public final int blazeFaces;
+        public final int legacyFaces;
+        /** Images on which the two detectors found a different number of faces. */
+        public final int disagreements;
+        public final LatencyHistogram.Snapshot blazeLatency;
+        public final LatencyHistogram.Snapshot legacyLatency;
+
+        Report(int images, int blazeFaces, int legacyFaces, int disagreements,
+               LatencyHistogram.Snapshot blazeLatency, LatencyHistogram.Snapshot legacyLatency) {
+            this.images = images;
+            this.blazeFaces = blazeFaces;
+            this.legacyFaces = legacyFaces;
+            this.disagreements = disagreements;
+            this.blazeLatency = blazeLatency;
+            this.legacyLatency = legacyLatency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "images=%d disagreements=%d%n"
+                            + "blazeface faces=%d mean=%.1fms p95=%.1fms%n"
+                            + "legacy    faces=%d mean=%.1fms p95=%.1fms",
+                    images, disagreements,
+                    blazeFaces, blazeLatency.meanNanos() / 1e6, blazeLatency.percentileNanos(0.95) / 1e6,
+                    legacyFaces, legacyLatency.meanNanos() / 1e6, legacyLatency.percentileNanos(0.95) / 1e6);
+        }
+    }
+
+    public static Report run(Context context, String detectorAssetName, File imageDir, int maxFaces,
+                             int maxDetectDim, File resultsTsv) throws IOException {
+        File[] files = imageDir.listFiles();
+        if (files == null) throw new IOException("cannot list " + imageDir);
+        Arrays.sort(files);
+        BlazeFaceDetector blaze = new BlazeFaceDetector(context, detectorAssetName);
+        FaceDetectionCache legacy = FaceDetectionCache.getInstance();
+        LatencyHistogram blazeLatency = new LatencyHistogram();
+        LatencyHistogram legacyLatency = new LatencyHistogram();
+        List<FaceBox> boxes = new ArrayList<>();
+        int images = 0;
+        int blazeFaces = 0;
+        int legacyFaces = 0;
+        int disagreements = 0;
+        PrintStream out = resultsTsv != null ? new PrintStream(resultsTsv, "UTF-8") : null;
+        try {
+            for (File file : files) {
+                Bitmap bmp = BitmapFactory.decodeFile(file.getAbsolutePath());
+                if (bmp == null) continue;
+                // The first image pays for interpreter warm-up and work-surface setup; keep that out of the timings.
+                if (images == 0) {
+                    blaze.detect(bmp, maxFaces, boxes);
+                    legacy.detectLegacy(bmp, maxFaces, maxDetectDim, boxes);
+                }
+                boxes.clear();
+                long t = System.nanoTime();
+                int nb = blaze.detect(bmp, maxFaces, boxes);
+                long blazeNanos = System.nanoTime() - t;
+                boxes.clear();
+                t = System.nanoTime();
+                int nl = legacy.detectLegacy(bmp, maxFaces, maxDetectDim, boxes);
+                long legacyNanos = System.nanoTime() - t;
+                boxes.clear();
+                bmp.recycle();
+
+                images++;
+                blazeFaces += nb;
+                legacyFaces += nl;
+                if (nb != nl) disagreements++;
+                blazeLatency.record(blazeNanos);
+                legacyLatency.record(legacyNanos);
+                if (out != null) {
+                    out.println(file.getName() + '\t' + nb + '\t'
+                            + String.format(Locale.US, "%.1f", blazeNanos / 1000.0) + '\t' + nl + '\t'
+                            + String.format(Locale.US, "%.1f", legacyNanos / 1000.0));
+                }
+            }
+        } finally {
+            if (out != null) out.close();
+            blaze.close();
+        }
+        return new Report(images, blazeFaces, legacyFaces, disagreements,
+                blazeLatency.snapshot(), legacyLatency.snapshot());
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.face;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class EmbedderPool {
+    private static final Map<String, Entry> entries = new HashMap<>();
+    private static final ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "facelib-warmup");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private static boolean callbacksRegistered;
+
+    private EmbedderPool() {}
+
+    /**
+     * The model is loaded outside the pool lock: the first caller for a model builds it while callers
+     * for the same model wait for that load, and every other pool operation carries on.
+     */
+    public static TfLiteFaceEmbedder acquire(Context context, String modelAssetName) {
+        Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        Entry e;
+        boolean load = false;
+        synchronized (entries) {
+            registerCallbacks(app);
+            e = entries.get(modelAssetName);
+            if (e == null) {
+                e = new Entry();
+                entries.put(modelAssetName, e);
+                load = true;
+            }
+            e.refs++;
+        }
+        if (load) {
+            TfLiteFaceEmbedder embedder = null;
+            Throwable failure = null;
+            try {
+                embedder = new TfLiteFaceEmbedder(app, modelAssetName);
+            } catch (RuntimeException | Error t) {
+                failure = t;
+            }
+            synchronized (entries) {
+                e.embedder = embedder;
+                e.failure = failure;
+                e.loaded = true;
+                if (failure != null) entries.remove(modelAssetName);
+                entries.notifyAll();
+            }
+            if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+            if (failure != null) throw (Error) failure;
+            return embedder;
+        }
+        synchronized (entries) {
+            boolean interrupted = false;
+            while (!e.loaded) {
+                try {
+                    entries.wait();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (e.failure != null) throw new IllegalStateException("cannot load " + modelAssetName, e.failure);
+            return e.embedder;
+        }
+    }
+
+    /**
+     * Acquires on the inference thread, so a first load never blocks the caller, and reports there.
+     * The caller owns a reference once {@code onResult} runs and must {@link #release} it.
+     */
+    public static void acquireAsync(Context context, String modelAssetName,
+                                    FaceRecognition.Callback<TfLiteFaceEmbedder> callback) {
+        Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        FaceRecognition.runAfterPending(() -> {
+            TfLiteFaceEmbedder embedder;
+            try {
+                embedder = acquire(app, modelAssetName);
+            } catch (Throwable t) {
+                callback.onError(t);
+                return;
+            }
+            callback.onResult(embedder);
+        });
+    }
+
+    /**
+     * Embedding size of the model if the pool already holds it loaded, else 0; never loads it. Also
+     * 0 for pairwise models, which produce no embedding.
+     */
+    public static int loadedEmbeddingSize(String modelAssetName) {
+        synchronized (entries) {
+            Entry e = entries.get(modelAssetName);
+            if (e == null || e.embedder == null || e.embedder.isPairwise()) return 0;
+            return e.embedder.getEmbeddingSize();
+        }
+    }
+
+    public static void release(TfLiteFaceEmbedder embedder) {
+        if (embedder == null) return;
+        boolean close = false;
+        synchronized (entries) {
+            for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                Entry e = it.next().getValue();
+                if (e.embedder != embedder) continue;
+                if (e.refs > 0) e.refs--;
+                if (e.refs == 0 && e.evictWhenIdle) {
+                    it.remove();
+                    close = true;
+                }
+                break;
+            }
+        }
+        if (close) embedder.close();
+    }
+
+    /**
+     * Loads and runs the model once on a background thread, calibrating its interpreter settings
+     * first if this device has no stored config for it (see {@link InterpreterTuning}).
+     */
+    public static void warmUp(Context context, String modelAssetName) {
+        Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        warmUpExecutor.execute(() -> {
+            TfLiteFaceEmbedder emb = null;
+            try {
+                InterpreterTuning.ensureCalibrated(app, modelAssetName);
+                emb = acquire(app, modelAssetName);
+                emb.warmUp();
+            } catch (Throwable ignored) {
+            } finally {
+                release(emb);
+            }
+        });
+    }
+
+    public static void warmUpDetector(Context context, String detectorAssetName) {
+        Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        warmUpExecutor.execute(() -> {
+            try {
+                InterpreterTuning.ensureCalibrated(app, detectorAssetName);
+            } catch (Throwable ignored) {
+            }
+            FaceDetectionCache.getInstance().loadDetector(app, detectorAssetName);
+        });
+    }
+
+    public static void trim() {
+        List<TfLiteFaceEmbedder> idle = new ArrayList<>();
+        synchronized (entries) {
+            for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                Entry e = it.next().getValue();
+                if (e.refs == 0) {
+                    it.remove();
+                    idle.add(e.embedder);
+                } else {
+                    e.evictWhenIdle = true;
+                }
+            }
+        }
+        for (TfLiteFaceEmbedder embedder : idle) embedder.close();
+    }
+
+    private static void registerCallbacks(Context app) {
+        if (callbacksRegistered) return;
+        callbacksRegistered = true;
+        app.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+                    trim();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {}
+
+            @Override
+            public void onLowMemory() {
+                trim();
+            }
+        });
+    }
+
+    /** Guarded by {@code entries}; {@code embedder} is null until {@code loaded}. */
+    private static final class Entry {
+        TfLiteFaceEmbedder embedder;
+        Throwable failure;
+        boolean loaded;
+        int refs;
+        boolean evictWhenIdle;
+    }
+}
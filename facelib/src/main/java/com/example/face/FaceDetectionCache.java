@@ -0,0 +1,294 @@
+package com.example.face;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PointF;
+import android.graphics.Rect;
+import android.media.FaceDetector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Detections cached per bitmap. The monitor only guards the cache and the detector pool; detection
+ * itself runs outside it, so callers only wait for each other on the same legacy detector size or
+ * on the TFLite detector's own lock.
+ */
+public class FaceDetectionCache {
+    private static final int MAX_POOLED = 4;
+    /**
+     * Largest detection size routed to the TFLite detector. BlazeFace letterboxes the whole image into
+     * its 128px input, so above this faces in a group photo shrink below its smallest anchor; larger
+     * requests keep the legacy detector, which runs at the full {@code maxDetectDim}.
+     */
+    static final int TFLITE_MAX_DETECT_DIM = 512;
+    private static FaceDetectionCache instance;
+
+    private final Map<Bitmap, Entry> results = new WeakHashMap<>();
+    /** Idle legacy detectors, most recently returned first; a detector is out of the list while in use. */
+    private final List<LegacyDetector> idle = new ArrayList<>(MAX_POOLED);
+    private BlazeFaceDetector tfDetector;
+    private String tfDetectorAsset;
+    /** Bumped whenever cached results are invalidated, so a detection that raced it is not stored. */
+    private int epoch;
+
+    public static synchronized FaceDetectionCache getInstance() {
+        if (instance == null) {
+            instance = new FaceDetectionCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Loads a BlazeFace-style TFLite detector and uses it in place of {@link FaceDetector} for requests
+     * up to {@link #TFLITE_MAX_DETECT_DIM}. Returns
+     * false (keeping the legacy detector) if the model is missing or has an unexpected layout.
+     */
+    public boolean loadDetector(Context context, String modelAssetName) {
+        synchronized (this) {
+            if (tfDetector != null && modelAssetName.equals(tfDetectorAsset)) return true;
+        }
+        BlazeFaceDetector d;
+        try {
+            d = new BlazeFaceDetector(context, modelAssetName);
+        } catch (Throwable t) {
+            return false;
+        }
+        BlazeFaceDetector old;
+        synchronized (this) {
+            old = swapDetector(d);
+            tfDetectorAsset = modelAssetName;
+        }
+        if (old != null) old.close();
+        return true;
+    }
+
+    public void setDetector(BlazeFaceDetector detector) {
+        BlazeFaceDetector old = swapDetector(detector);
+        if (old != null) old.close();
+    }
+
+    /**
+     * Installs {@code detector} and returns the one it replaces, which the caller closes outside the
+     * monitor: closing waits for a detection still running on it.
+     */
+    private synchronized BlazeFaceDetector swapDetector(BlazeFaceDetector detector) {
+        if (tfDetector == detector) return null;
+        BlazeFaceDetector old = tfDetector;
+        tfDetector = detector;
+        tfDetectorAsset = null;
+        results.clear();
+        epoch++;
+        return old;
+    }
+
+    public synchronized boolean hasTfLiteDetector() {
+        return tfDetector != null;
+    }
+
+    public int findFaces(Bitmap src, int maxFaces, int maxDetectDim, boolean mirrored, List<Rect> out) {
+        Entry e = entry(src, maxFaces, maxDetectDim);
+        int w = src.getWidth();
+        for (Rect r : e.crops) {
+            out.add(mirrored ? new Rect(w - r.right, r.top, w - r.left, r.bottom) : new Rect(r));
+        }
+        return e.crops.size();
+    }
+
+    /**
+     * The highest-ranked face, with its embedder crop written to {@code crop}; null if there is none.
+     * Allocates nothing when the detection for {@code src} is already cached.
+     */
+    public FaceBox findFirstFace(Bitmap src, int maxDetectDim, Rect crop) {
+        Entry e = entry(src, 1, maxDetectDim);
+        if (e.boxes.isEmpty()) return null;
+        FaceBox box = e.boxes.get(0);
+        cropRect(box, e.width, e.height, crop);
+        return box;
+    }
+
+    public int findFaceBoxes(Bitmap src, int maxFaces, int maxDetectDim, boolean mirrored, List<FaceBox> out) {
+        Entry e = entry(src, maxFaces, maxDetectDim);
+        int w = src.getWidth();
+        for (FaceBox b : e.boxes) out.add(mirrored ? b.mirrored(w) : b);
+        return e.boxes.size();
+    }
+
+    public synchronized void clear() {
+        results.clear();
+        idle.clear();
+        epoch++;
+    }
+
+    /** Embedder crop for a detection: 1.2x eye distance either side of the eye midpoint, 1.6x above and below. */
+    static Rect cropRect(FaceBox box, int imageWidth, int imageHeight) {
+        Rect r = new Rect();
+        cropRect(box, imageWidth, imageHeight, r);
+        return r;
+    }
+
+    static void cropRect(FaceBox box, int imageWidth, int imageHeight, Rect out) {
+        float left = box.left;
+        float top = box.top;
+        float right = box.right;
+        float bottom = box.bottom;
+        if (box.hasEyes()) {
+            float d = box.eyeDistance();
+            float mx = (box.landmarkX(FaceBox.RIGHT_EYE) + box.landmarkX(FaceBox.LEFT_EYE)) * 0.5f;
+            float my = (box.landmarkY(FaceBox.RIGHT_EYE) + box.landmarkY(FaceBox.LEFT_EYE)) * 0.5f;
+            left = mx - 1.2f * d;
+            top = my - 1.6f * d;
+            right = mx + 1.2f * d;
+            bottom = my + 1.6f * d;
+        }
+        int x = Math.max(0, Math.min(imageWidth - 1, Math.round(left)));
+        int y = Math.max(0, Math.min(imageHeight - 1, Math.round(top)));
+        int w = Math.max(1, Math.min(imageWidth - x, Math.round(right) - x));
+        int h = Math.max(1, Math.min(imageHeight - y, Math.round(bottom) - y));
+        out.set(x, y, x + w, y + h);
+    }
+
+    private Entry entry(Bitmap src, int maxFaces, int maxDetectDim) {
+        BlazeFaceDetector tf;
+        int startEpoch;
+        synchronized (this) {
+            Entry e = results.get(src);
+            if (e != null && e.generation == src.getGenerationId() && e.width == src.getWidth()
+                    && e.height == src.getHeight() && e.maxFaces == maxFaces && e.maxDetectDim == maxDetectDim) {
+                return e;
+            }
+            tf = maxDetectDim <= TFLITE_MAX_DETECT_DIM ? tfDetector : null;
+            startEpoch = epoch;
+        }
+        List<FaceBox> boxes = new ArrayList<>();
+        if (tf != null) {
+            try {
+                tf.detect(src, maxFaces, boxes);
+            } catch (Throwable t) {
+                // Also covers a detector closed by setDetector while this call held it.
+                boxes.clear();
+                detect(src, maxFaces, maxDetectDim, boxes);
+            }
+        } else {
+            detect(src, maxFaces, maxDetectDim, boxes);
+        }
+        Entry e = new Entry(src, maxFaces, maxDetectDim, boxes);
+        synchronized (this) {
+            if (epoch == startEpoch) results.put(src, e);
+        }
+        return e;
+    }
+
+    /** The legacy {@link FaceDetector} path on its own, bypassing the cache; for {@link DetectorComparison}. */
+    int detectLegacy(Bitmap src, int maxFaces, int maxDetectDim, List<FaceBox> found) {
+        int before = found.size();
+        detect(src, maxFaces, maxDetectDim, found);
+        return found.size() - before;
+    }
+
+    private void detect(Bitmap src, int maxFaces, int maxDetectDim, List<FaceBox> found) {
+        int maxDim = Math.max(src.getWidth(), src.getHeight());
+        float scale = maxDim > maxDetectDim ? (float) maxDetectDim / maxDim : 1f;
+        int ww = Math.max(2, Math.round(src.getWidth() * scale)) & ~1;
+        int wh = Math.max(1, Math.round(src.getHeight() * scale));
+        LegacyDetector d = null;
+        try {
+            d = checkOut(ww, wh, maxFaces);
+            if (d == null) d = new LegacyDetector(ww, wh, maxFaces);
+            d.detect(src, found);
+        } catch (Throwable ignored) {
+        } finally {
+            if (d != null) checkIn(d);
+        }
+    }
+
+    /** An idle detector for the size, or null when the caller has to build one. */
+    private synchronized LegacyDetector checkOut(int width, int height, int maxFaces) {
+        for (int i = 0; i < idle.size(); i++) {
+            LegacyDetector d = idle.get(i);
+            if (d.width == width && d.height == height && d.maxFaces == maxFaces) return idle.remove(i);
+        }
+        return null;
+    }
+
+    private synchronized void checkIn(LegacyDetector d) {
+        idle.add(0, d);
+        if (idle.size() > MAX_POOLED) idle.remove(idle.size() - 1);
+    }
+
+    /** A {@link FaceDetector} with its downscaled work surface and scratch; used by one thread at a time. */
+    private static final class LegacyDetector {
+        final int width;
+        final int height;
+        final int maxFaces;
+        final FaceDetector detector;
+        final Bitmap bitmap;
+        final Canvas canvas;
+        final Paint scalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        final Rect srcRect = new Rect();
+        final Rect dstRect;
+        final PointF mid = new PointF();
+        final FaceDetector.Face[] faces;
+
+        LegacyDetector(int width, int height, int maxFaces) {
+            this.width = width;
+            this.height = height;
+            this.maxFaces = maxFaces;
+            this.detector = new FaceDetector(width, height, maxFaces);
+            this.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            this.canvas = new Canvas(bitmap);
+            this.dstRect = new Rect(0, 0, width, height);
+            this.faces = new FaceDetector.Face[maxFaces];
+        }
+
+        void detect(Bitmap src, List<FaceBox> found) {
+            srcRect.set(0, 0, src.getWidth(), src.getHeight());
+            canvas.drawBitmap(src, srcRect, dstRect, scalePaint);
+            int n = detector.findFaces(bitmap, faces);
+            float sx = (float) src.getWidth() / width;
+            float sy = (float) src.getHeight() / height;
+            for (int i = 0; i < n; i++) {
+                FaceDetector.Face f = faces[i];
+                faces[i] = null;
+                if (f == null) continue;
+                f.getMidPoint(mid);
+                float d = f.eyesDistance();
+                float mx = mid.x * sx;
+                float my = mid.y * sy;
+                float ds = d * sx;
+                // FaceDetector only reports the eye midpoint and distance; the level eyes carry no pose.
+                float[] eyes = {mx - ds * 0.5f, my, mx + ds * 0.5f, my};
+                found.add(new FaceBox(mx - 1.2f * ds, my - 1.6f * d * sy, mx + 1.2f * ds, my + 1.6f * d * sy,
+                        f.confidence(), eyes, false));
+            }
+        }
+    }
+
+    private static final class Entry {
+        final int generation;
+        final int width;
+        final int height;
+        final int maxFaces;
+        final int maxDetectDim;
+        final List<FaceBox> boxes;
+        final List<Rect> crops;
+
+        Entry(Bitmap src, int maxFaces, int maxDetectDim, List<FaceBox> boxes) {
+            this.generation = src.getGenerationId();
+            this.width = src.getWidth();
+            this.height = src.getHeight();
+            this.maxFaces = maxFaces;
+            this.maxDetectDim = maxDetectDim;
+            this.boxes = boxes;
+            this.crops = new ArrayList<>(boxes.size());
+            for (FaceBox b : boxes) {
+                Rect r = cropRect(b, width, height);
+                if (!r.isEmpty()) crops.add(r);
+            }
+        }
+    }
+}
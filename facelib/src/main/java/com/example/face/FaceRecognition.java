@@ -1,87 +1,304 @@
 package com.example.face;
 
 import android.graphics.Bitmap;
-import android.graphics.Matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class FaceRecognition {
+    private static final int DETECT_MAX_DIM = 512;
+    /** Single thread shared by all async requests, so interpreter work is never interleaved with the UI. */
+    private static final ExecutorService inferenceExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "facelib-inference");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Delivered on the inference thread; never called for a request that was cancelled. */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        void onError(Throwable error);
+    }
+
     private final TfLiteFaceEmbedder embedder;
     private float alpha = 13.9f;
     private float c0 = 0.30f;
+    private float threshold = 0.7f;
+    private float band = -1f;
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong invocations = new AtomicLong();
+    private FaceMetrics metrics;
+    private Future<?> pending;
 
     public FaceRecognition(TfLiteFaceEmbedder embedder) {
         this.embedder = embedder;
     }
 
+    /**
+     * Scores two faces. With the cascade off both views of both faces go through the model in one
+     * batched invocation. With it on, the plain views are scored first and the mirrored views are
+     * only embedded, again as one batch of the same size, when that score falls inside the
+     * uncertainty band around the threshold. Pairwise models keep {@code a} preprocessed between
+     * calls, so pass the reference first.
+     */
     public float computeSimilarity(Bitmap a, Bitmap b) {
-        if (embedder.isPairwise()) {
-            return embedder.compare(a, b);
-        } else {
-            Bitmap aFlip = flipHorizontal(a);
-            Bitmap bFlip = flipHorizontal(b);
-            float[] e1o = embedder.embed(a);
-            float[] e1f = embedder.embed(aFlip);
-            float[] e2o = embedder.embed(b);
-            float[] e2f = embedder.embed(bFlip);
-            float[] e1 = average(e1o, e1f);
-            float[] e2 = average(e2o, e2f);
-            normalizeL2(e1);
-            normalizeL2(e2);
-            float cos = cosine(e1, e2);
-            return sigmoid(alpha * (cos - c0));
+        verifications.incrementAndGet();
+        // Holding the embedder across both cascade stages also keeps other callers from resizing
+        // its batch in between.
+        synchronized (embedder) {
+            long runs = embedder.getInvocationCount();
+            try {
+                return similarity(a, b);
+            } finally {
+                invocations.addAndGet(embedder.getInvocationCount() - runs);
+            }
         }
     }
 
-    public boolean compare(Bitmap a, Bitmap b, float threshold) {
-        return computeSimilarity(a, b) >= threshold;
+    public float computeSimilarity(float[] reference, Bitmap probe) {
+        verifications.incrementAndGet();
+        if (embedder.isPairwise()) throw new IllegalStateException("pairwise model");
+        synchronized (embedder) {
+            long runs = embedder.getInvocationCount();
+            try {
+                return similarity(reference, probe);
+            } finally {
+                invocations.addAndGet(embedder.getInvocationCount() - runs);
+            }
+        }
     }
 
-    public FaceRecognition setAlpha(float alpha) {
-        this.alpha = alpha;
+    private float similarity(Bitmap a, Bitmap b) {
+        if (embedder.isPairwise()) return embedder.compare(a, b);
+        int n = embedder.getEmbeddingSize();
+        List<Bitmap> pair = Arrays.asList(a, b);
+        if (band < 0f) {
+            // Packed as a, mirrored a, b, mirrored b.
+            float[] views = embedder.embedBatch(pair, true);
+            return score(meanView(views, 0, n), meanView(views, 2 * n, n));
+        }
+        float[] plain = embedder.embedBatch(pair, false);
+        float[] e1 = Arrays.copyOfRange(plain, 0, n);
+        float[] e2 = Arrays.copyOfRange(plain, n, 2 * n);
+        float s = score(e1, e2);
+        if (!uncertain(s)) return s;
+        float[] m = embedder.embedMirroredBatch(pair);
+        for (int i = 0; i < n; i++) {
+            e1[i] = 0.5f * (e1[i] + m[i]);
+            e2[i] = 0.5f * (e2[i] + m[n + i]);
+        }
+        VectorMath.normalizeL2(e1);
+        VectorMath.normalizeL2(e2);
+        return score(e1, e2);
+    }
+
+    private float similarity(float[] reference, Bitmap probe) {
+        int n = embedder.getEmbeddingSize();
+        if (band < 0f) {
+            float[] views = embedder.embedBatch(Collections.singletonList(probe), true);
+            return score(reference, meanView(views, 0, n));
+        }
+        float[] e = new float[n];
+        embedder.embed(probe, false, e);
+        float s = score(reference, e);
+        if (!uncertain(s)) return s;
+        float[] m = new float[n];
+        embedder.embed(probe, true, m);
+        for (int i = 0; i < n; i++) e[i] = 0.5f * (e[i] + m[i]);
+        VectorMath.normalizeL2(e);
+        return score(reference, e);
+    }
+
+    /** Single-view score for a streamed frame; consecutive frames stand in for flip TTA. */
+    public float computeSimilarity(float[] reference, YuvFrame frame, FaceBox face) {
+        if (embedder.isPairwise()) throw new IllegalStateException("pairwise model");
+        verifications.incrementAndGet();
+        float[] e = new float[embedder.getEmbeddingSize()];
+        embedder.embed(frame, face, false, e);
+        return score(reference, e);
+    }
+
+    /**
+     * Scores {@code probe} on the inference thread. Submitting another similarity request cancels this
+     * one if it is still queued, and a cancelled request never reaches {@code callback}, so only the
+     * newest probe is reported.
+     */
+    public Future<Float> computeSimilarityAsync(final float[] reference, final Bitmap probe, Callback<Float> callback) {
+        return submitLatest(() -> computeSimilarity(reference, probe), callback);
+    }
+
+    public Future<Float> computeSimilarityAsync(final Bitmap a, final Bitmap b, Callback<Float> callback) {
+        return submitLatest(() -> computeSimilarity(a, b), callback);
+    }
+
+    /** Computes a reference embedding on the inference thread; unlike probes it is never superseded. */
+    public Future<float[]> referenceEmbeddingAsync(final Bitmap bitmap, Callback<float[]> callback) {
+        return submit(() -> referenceEmbedding(bitmap), callback);
+    }
+
+    public Future<float[]> enrollmentTemplateAsync(final List<Bitmap> shots, Callback<float[]> callback) {
+        return submit(() -> enrollmentTemplate(shots), callback);
+    }
+
+    /**
+     * Runs {@code action} on the inference thread after everything already submitted, e.g. to release
+     * a pooled embedder only once no queued or running request can still use its interpreter.
+     */
+    public static void runAfterPending(Runnable action) {
+        inferenceExecutor.execute(action);
+    }
+
+    /** Drops the outstanding similarity request, e.g. when the screen goes away. */
+    public void cancelPending() {
+        synchronized (this) {
+            if (pending != null) pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Runs {@code work} on the inference thread as this instance's latest request, cancelling the
+     * previous one if it has not started yet.
+     */
+    <T> Future<T> submitLatest(Callable<T> work, Callback<T> callback) {
+        FutureTask<T> task = newTask(work, callback);
+        synchronized (this) {
+            if (pending != null) pending.cancel(false);
+            pending = task;
+        }
+        inferenceExecutor.execute(task);
+        return task;
+    }
+
+    /** Queues {@code work} on the inference thread; it is never superseded by later requests. */
+    static <T> Future<T> submit(Callable<T> work, Callback<T> callback) {
+        FutureTask<T> task = newTask(work, callback);
+        inferenceExecutor.execute(task);
+        return task;
+    }
+
+    private static <T> FutureTask<T> newTask(Callable<T> work, final Callback<T> callback) {
+        return new FutureTask<T>(work) {
+            @Override
+            protected void done() {
+                if (callback == null || isCancelled()) return;
+                try {
+                    callback.onResult(get());
+                } catch (ExecutionException e) {
+                    callback.onError(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    /**
+     * Scores within {@code halfWidth} of {@code threshold} trigger the flip-augmented second pass.
+     * A negative half width, the default, disables the cascade so every comparison runs both views;
+     * {@link VerificationHarness#compareCascade} measures what a given band costs in accuracy.
+     */
+    public FaceRecognition setUncertaintyBand(float threshold, float halfWidth) {
+        this.threshold = threshold;
+        this.band = halfWidth;
         return this;
     }
 
-    public FaceRecognition setCenter(float c0) {
-        this.c0 = c0;
+    /** Enables per-stage latency recording here and in the embedder; null turns it off. */
+    public FaceRecognition setMetrics(FaceMetrics metrics) {
+        this.metrics = metrics;
+        embedder.setMetrics(metrics);
         return this;
     }
 
-    private static float euclidean(float[] a, float[] b) {
-        float s = 0f;
-        for (int i = 0; i < a.length; i++) {
-            float diff = a[i] - b[i];
-            s += diff * diff;
+    public FaceMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long getVerificationCount() {
+        return verifications.get();
+    }
+
+    /** Mean interpreter runs per verification; a batched run counts once, so this tracks latency. */
+    public double getAverageInvocations() {
+        long v = verifications.get();
+        return v == 0 ? 0.0 : (double) invocations.get() / v;
+    }
+
+    public void resetStats() {
+        verifications.set(0L);
+        invocations.set(0L);
+    }
+
+    public float[] referenceEmbedding(Bitmap bitmap) {
+        if (embedder.isPairwise()) throw new IllegalStateException("pairwise model");
+        float[] packed = embedder.embedBatch(Collections.singletonList(bitmap), true);
+        return meanView(packed, 0, embedder.getEmbeddingSize());
+    }
+
+    /**
+     * Averages the flip-augmented embeddings of several shots of one person into a single template.
+     * Shots without a detected face are left out unless none has one.
+     */
+    public float[] enrollmentTemplate(List<Bitmap> shots) {
+        if (embedder.isPairwise()) throw new IllegalStateException("pairwise model");
+        List<Bitmap> usable = new ArrayList<>(shots.size());
+        List<FaceBox> boxes = new ArrayList<>(1);
+        for (Bitmap shot : shots) {
+            boxes.clear();
+            if (FaceDetectionCache.getInstance().findFaceBoxes(shot, 1, DETECT_MAX_DIM, false, boxes) > 0) usable.add(shot);
         }
-        return (float) Math.sqrt(s);
+        if (usable.isEmpty()) usable = shots;
+        int n = embedder.getEmbeddingSize();
+        float[] packed = embedder.embedBatch(usable, true);
+        float[][] views = new float[usable.size() * 2][];
+        for (int i = 0; i < views.length; i++) views[i] = Arrays.copyOfRange(packed, i * n, (i + 1) * n);
+        return FaceTemplate.average(views);
     }
 
-    private static float cosine(float[] a, float[] b) {
-        float s = 0f;
-        for (int i = 0; i < a.length; i++) s += a[i] * b[i];
-        return s;
+    private boolean uncertain(float score) {
+        return Math.abs(score - threshold) <= band;
+    }
+
+    /** The normalized mean of the plain view at {@code offset} and the mirrored view after it. */
+    private static float[] meanView(float[] packed, int offset, int n) {
+        float[] e = VectorMath.average(packed, offset, offset + n, n);
+        VectorMath.normalizeL2(e);
+        return e;
+    }
+
+    public float similarityFromCosine(float cos) {
+        return VectorMath.sigmoid(alpha * (cos - c0));
     }
 
-    private static float sigmoid(float x) {
-        double v = 1.0 / (1.0 + Math.exp(-x));
-        return (float) v;
+    private float score(float[] e1, float[] e2) {
+        long t = FaceMetrics.start(metrics);
+        float s = similarityFromCosine(VectorMath.cosine(e1, e2));
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.POSTPROCESS, t);
+        return s;
     }
 
-    private static Bitmap flipHorizontal(Bitmap src) {
-        Matrix m = new Matrix();
-        m.preScale(-1f, 1f);
-        return Bitmap.createBitmap(src, 0, 0, src.getWidth(), src.getHeight(), m, true);
+    public boolean compare(Bitmap a, Bitmap b, float threshold) {
+        return computeSimilarity(a, b) >= threshold;
     }
 
-    private static float[] average(float[] a, float[] b) {
-        float[] r = new float[a.length];
-        for (int i = 0; i < a.length; i++) r[i] = 0.5f * (a[i] + b[i]);
-        return r;
+    public FaceRecognition setAlpha(float alpha) {
+        this.alpha = alpha;
+        return this;
     }
 
-    private static void normalizeL2(float[] v) {
-        float s = 0f;
-        for (float x : v) s += x * x;
-        float n = (float) Math.sqrt(s);
-        if (n == 0f) return;
-        for (int i = 0; i < v.length; i++) v[i] /= n;
+    public FaceRecognition setCenter(float c0) {
+        this.c0 = c0;
+        return this;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,197 @@
+package com.example.face;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verifies a live camera stream against a reference embedding. Frames are handed over with
+ * {@link #offer}; only the most recent unprocessed frame is kept, so inference never queues up
+ * behind the camera. Frames are scored on the shared inference thread, as the scorer's latest
+ * request, so they never run alongside other interpreter work. Verification succeeds once enough
+ * consecutive frames score above the threshold.
+ */
+public class FrameVerifier {
+    private static final int DETECT_MAX_DIM = 320;
+
+    public interface Listener {
+        void onFrameScored(float score, int consecutivePasses);
+
+        void onVerified(float score, long elapsedMillis);
+
+        /** Called exactly once for every offered frame, when facelib no longer reads its buffers. */
+        void onFrameReleased(YuvFrame frame);
+    }
+
+    private final FaceRecognition scorer;
+    private final float[] reference;
+    private final float threshold;
+    private final int requiredPasses;
+    private final Listener listener;
+    private volatile FaceQualityGate qualityGate = new FaceQualityGate();
+
+    private final Object lock = new Object();
+    private YuvFrame pending;
+    private boolean running;
+    /** Bumped on every start, so scores from a previous run are dropped. */
+    private int session;
+    private long startNanos;
+    private int consecutive;
+    private float bestScore;
+    private int processedFrames;
+    private int droppedFrames;
+
+    private Bitmap detectSurface;
+    private int[] detectPixels = new int[0];
+    private final List<FaceBox> boxes = new ArrayList<>(1);
+
+    public FrameVerifier(FaceRecognition scorer, float[] reference, float threshold, int requiredPasses,
+                         Listener listener) {
+        this.scorer = scorer;
+        this.reference = reference;
+        this.threshold = threshold;
+        this.requiredPasses = Math.max(1, requiredPasses);
+        this.listener = listener;
+    }
+
+    /** Frames whose face fails the gate are scored 0 without running the embedder; null disables it. */
+    public FrameVerifier setQualityGate(FaceQualityGate gate) {
+        this.qualityGate = gate;
+        return this;
+    }
+
+    public FaceQualityGate getQualityGate() {
+        return qualityGate;
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (running) return;
+            running = true;
+            consecutive = 0;
+            bestScore = 0f;
+            processedFrames = 0;
+            droppedFrames = 0;
+            startNanos = System.nanoTime();
+            session++;
+        }
+    }
+
+    /** Hands a frame to the verifier. Returns false (and releases the frame) if it is not running. */
+    public boolean offer(YuvFrame frame) {
+        YuvFrame dropped;
+        final int current;
+        synchronized (lock) {
+            current = session;
+            if (!running) {
+                dropped = frame;
+            } else {
+                dropped = pending;
+                pending = frame;
+                if (dropped != null) droppedFrames++;
+            }
+        }
+        if (dropped != null) listener.onFrameReleased(dropped);
+        if (dropped == frame) return false;
+        // Supersedes a queued request for an older frame; whichever request runs takes the newest one.
+        scorer.submitLatest(() -> scoreNext(current), null);
+        return true;
+    }
+
+    public void stop() {
+        YuvFrame dropped;
+        synchronized (lock) {
+            running = false;
+            dropped = pending;
+            pending = null;
+        }
+        scorer.cancelPending();
+        if (dropped != null) listener.onFrameReleased(dropped);
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    public float getBestScore() {
+        synchronized (lock) {
+            return bestScore;
+        }
+    }
+
+    public int getProcessedFrames() {
+        synchronized (lock) {
+            return processedFrames;
+        }
+    }
+
+    public int getDroppedFrames() {
+        synchronized (lock) {
+            return droppedFrames;
+        }
+    }
+
+    /** Runs on the inference thread; a no-op when the frame it was queued for was already taken. */
+    private Float scoreNext(int forSession) {
+        YuvFrame frame;
+        synchronized (lock) {
+            if (!running || session != forSession || pending == null) return null;
+            frame = pending;
+            pending = null;
+        }
+        float score = 0f;
+        try {
+            score = score(frame);
+        } catch (Throwable ignored) {
+        } finally {
+            listener.onFrameReleased(frame);
+        }
+        boolean verified;
+        int passes;
+        synchronized (lock) {
+            if (!running || session != forSession) return null;
+            processedFrames++;
+            if (score > bestScore) bestScore = score;
+            consecutive = score >= threshold ? consecutive + 1 : 0;
+            passes = consecutive;
+            verified = consecutive >= requiredPasses;
+            if (verified) running = false;
+        }
+        listener.onFrameScored(score, passes);
+        if (verified) listener.onVerified(score, (System.nanoTime() - startNanos) / 1_000_000L);
+        return score;
+    }
+
+    private float score(YuvFrame frame) {
+        int uw = frame.uprightWidth();
+        int uh = frame.uprightHeight();
+        float scale = Math.min(1f, (float) DETECT_MAX_DIM / Math.max(uw, uh));
+        int dw = Math.max(2, Math.round(uw * scale));
+        int dh = Math.max(1, Math.round(uh * scale));
+        if (detectSurface == null || detectSurface.getWidth() != dw || detectSurface.getHeight() != dh) {
+            detectSurface = Bitmap.createBitmap(dw, dh, Bitmap.Config.ARGB_8888);
+            detectPixels = new int[dw * dh];
+        }
+        FaceMetrics metrics = scorer.getMetrics();
+        long t = FaceMetrics.start(metrics);
+        YuvKernels.toArgb(frame, dw, dh, detectPixels);
+        detectSurface.setPixels(detectPixels, 0, dw, 0, 0, dw, dh);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.DECODE, t);
+        t = FaceMetrics.start(metrics);
+        boxes.clear();
+        int found = FaceDetectionCache.getInstance().findFaceBoxes(detectSurface, 1, DETECT_MAX_DIM, false, boxes);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.DETECT, t);
+        if (found == 0) {
+            FaceQualityGate gate = qualityGate;
+            if (gate != null) gate.check(frame, null);
+            return 0f;
+        }
+        FaceBox face = boxes.get(0).scaled((float) uw / dw, (float) uh / dh);
+        FaceQualityGate gate = qualityGate;
+        if (gate != null && !gate.check(frame, face).passed()) return 0f;
+        return scorer.computeSimilarity(reference, frame, face);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.face;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Identifies every face in one photo against a roster and assigns each roster entry at most one
+ * face. Per photo there is one detection pass, then all faces are cropped and aligned in parallel on
+ * this instance's pool (one thread per core) and embedded in a single batched invocation. Only that
+ * preprocessing scales with cores: detection runs once on the calling thread, and inference is
+ * bounded by the interpreter's own thread count (see {@link InterpreterTuning}) and holds the
+ * embedder for the whole batch.
+ */
+public class GroupCheckIn {
+    private static final int DETECT_MAX_DIM = 1600;
+    private static final int CANDIDATES_PER_FACE = 3;
+
+    private final TfLiteFaceEmbedder embedder;
+    private final FaceIndex roster;
+    private final FaceRecognition scorer;
+    private final float threshold;
+    private final ExecutorService executor;
+    private int maxFaces = 64;
+
+    public GroupCheckIn(TfLiteFaceEmbedder embedder, FaceIndex roster, FaceRecognition scorer, float threshold) {
+        this.embedder = embedder;
+        this.roster = roster;
+        this.scorer = scorer;
+        this.threshold = threshold;
+        final AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "facelib-group-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public GroupCheckIn setMaxFaces(int maxFaces) {
+        this.maxFaces = Math.max(1, maxFaces);
+        return this;
+    }
+
+    public List<Result> identify(Bitmap photo) {
+        List<FaceBox> boxes = new ArrayList<>();
+        FaceDetectionCache.getInstance().findFaceBoxes(photo, maxFaces, DETECT_MAX_DIM, false, boxes);
+        if (boxes.isEmpty()) return Collections.emptyList();
+        List<Rect> faces = new ArrayList<>(boxes.size());
+        for (FaceBox b : boxes) faces.add(FaceDetectionCache.cropRect(b, photo.getWidth(), photo.getHeight()));
+        float[] packed = embedder.embedFaces(photo, boxes, executor);
+        int dim = embedder.getEmbeddingSize();
+        float[] probe = new float[dim];
+        List<Result> candidates = new ArrayList<>();
+        for (int i = 0; i < faces.size(); i++) {
+            System.arraycopy(packed, i * dim, probe, 0, dim);
+            for (FaceMatch m : roster.search(probe, CANDIDATES_PER_FACE)) {
+                float score = scorer.similarityFromCosine(m.score);
+                if (score >= threshold) candidates.add(new Result(i, faces.get(i), m.id, score));
+            }
+        }
+        Collections.sort(candidates, (a, b) -> Float.compare(b.score, a.score));
+        boolean[] faceTaken = new boolean[faces.size()];
+        Set<String> idTaken = new HashSet<>();
+        List<Result> results = new ArrayList<>();
+        for (Result c : candidates) {
+            if (faceTaken[c.faceIndex] || idTaken.contains(c.id)) continue;
+            faceTaken[c.faceIndex] = true;
+            idTaken.add(c.id);
+            results.add(c);
+        }
+        for (int i = 0; i < faces.size(); i++) {
+            if (!faceTaken[i]) results.add(new Result(i, faces.get(i), null, 0f));
+        }
+        return results;
+    }
+
+    /** Runs {@link #identify} on the shared inference thread, queued behind earlier interpreter work. */
+    public Future<List<Result>> identifyAsync(final Bitmap photo, FaceRecognition.Callback<List<Result>> callback) {
+        return FaceRecognition.submit(() -> identify(photo), callback);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public static final class Result {
+        public final int faceIndex;
+        public final Rect face;
+        public final String id;
+        public final float score;
+
+        Result(int faceIndex, Rect face, String id, float score) {
+            this.faceIndex = faceIndex;
+            this.face = face;
+            this.id = id;
+            this.score = score;
+        }
+
+        public boolean isMatched() {
+            return id != null;
+        }
+    }
+}
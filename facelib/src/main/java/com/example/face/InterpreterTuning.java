@@ -0,0 +1,191 @@
+package com.example.face;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Per-model interpreter settings. {@link #calibrate} times the model once with a few thread counts,
+ * with and without the XNNPACK delegate, and stores the fastest combination in shared preferences;
+ * interpreters created afterwards reuse it. Results are dropped when the model contents (size and CRC)
+ * or the core count change.
+ */
+public final class InterpreterTuning {
+    private static final String PREFS = "facelib_tuning";
+    private static final int WARM_UP_RUNS = 2;
+    private static final int TIMED_RUNS = 8;
+    // Assets cannot change while the process runs, so each model is hashed at most once.
+    private static final Map<String, String> STAMPS = new ConcurrentHashMap<>();
+
+    private InterpreterTuning() {}
+
+    public static final class Config {
+        public final int threads;
+        public final boolean xnnpack;
+        /** Median latency measured during calibration, or 0 for the untuned default. */
+        public final long medianMicros;
+
+        Config(int threads, boolean xnnpack, long medianMicros) {
+            this.threads = threads;
+            this.xnnpack = xnnpack;
+            this.medianMicros = medianMicros;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{threads=" + threads + ", xnnpack=" + xnnpack + ", medianUs=" + medianMicros + '}';
+        }
+    }
+
+    /**
+     * Used until a model is calibrated: half the cores, at most four, which keeps inference off the
+     * cores the UI and camera threads need.
+     */
+    public static Config defaultConfig() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new Config(Math.max(1, Math.min(4, cores / 2)), true, 0L);
+    }
+
+    /**
+     * The stored config for a model, or null if it has not been calibrated on this device. Maps the
+     * model only if no interpreter for it has been created in this process yet.
+     */
+    public static Config get(Context context, String modelAssetName) {
+        String stamp = STAMPS.get(modelAssetName);
+        if (stamp == null) stamp = stamp(modelAssetName, TfLiteModels.loadModelBuffer(context, modelAssetName));
+        return get(context, modelAssetName, stamp);
+    }
+
+    /** As {@link #get(Context, String)}, for a model buffer the caller has already mapped. */
+    static Config get(Context context, String modelAssetName, ByteBuffer model) {
+        return get(context, modelAssetName, stamp(modelAssetName, model));
+    }
+
+    private static Config get(Context context, String modelAssetName, String stamp) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (!stamp.equals(prefs.getString(modelAssetName + ":stamp", null))) return null;
+        return new Config(prefs.getInt(modelAssetName + ":threads", 1),
+                prefs.getBoolean(modelAssetName + ":xnnpack", true),
+                prefs.getLong(modelAssetName + ":medianUs", 0L));
+    }
+
+    /** Calibrates unless a stored config is still valid. Blocks; call off the main thread. */
+    public static Config ensureCalibrated(Context context, String modelAssetName) {
+        ByteBuffer model = TfLiteModels.loadModelBuffer(context, modelAssetName);
+        Config c = get(context, modelAssetName, model);
+        return c != null ? c : calibrate(context, modelAssetName, model);
+    }
+
+    /** Benchmarks every candidate config on the model and stores the fastest. Blocks for a second or so. */
+    public static Config calibrate(Context context, String modelAssetName) {
+        return calibrate(context, modelAssetName, TfLiteModels.loadModelBuffer(context, modelAssetName));
+    }
+
+    private static Config calibrate(Context context, String modelAssetName, ByteBuffer model) {
+        Config best = null;
+        for (int threads : threadCandidates()) {
+            for (boolean xnnpack : new boolean[]{true, false}) {
+                long micros;
+                try {
+                    micros = measure(model, threads, xnnpack);
+                } catch (Throwable t) {
+                    continue;
+                }
+                if (best == null || micros < best.medianMicros) best = new Config(threads, xnnpack, micros);
+            }
+        }
+        if (best == null) return defaultConfig();
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).edit()
+                .putString(modelAssetName + ":stamp", stamp(modelAssetName, model))
+                .putInt(modelAssetName + ":threads", best.threads)
+                .putBoolean(modelAssetName + ":xnnpack", best.xnnpack)
+                .putLong(modelAssetName + ":medianUs", best.medianMicros)
+                .apply();
+        return best;
+    }
+
+    static Interpreter.Options options(Config c) {
+        return new Interpreter.Options().setNumThreads(c.threads).setUseXNNPACK(c.xnnpack);
+    }
+
+    private static long measure(ByteBuffer model, int threads, boolean xnnpack) {
+        model.rewind();
+        Interpreter interpreter = new Interpreter(model, options(new Config(threads, xnnpack, 0L)));
+        try {
+            Object[] inputs = new Object[interpreter.getInputTensorCount()];
+            for (int i = 0; i < inputs.length; i++) inputs[i] = allocate(interpreter.getInputTensor(i));
+            Map<Integer, Object> outputs = new HashMap<>();
+            for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+                outputs.put(i, allocate(interpreter.getOutputTensor(i)));
+            }
+            long[] samples = new long[TIMED_RUNS];
+            for (int r = 0; r < WARM_UP_RUNS + TIMED_RUNS; r++) {
+                rewind(inputs, outputs);
+                long t = System.nanoTime();
+                interpreter.runForMultipleInputsOutputs(inputs, outputs);
+                if (r >= WARM_UP_RUNS) samples[r - WARM_UP_RUNS] = System.nanoTime() - t;
+            }
+            Arrays.sort(samples);
+            return samples[TIMED_RUNS / 2] / 1000L;
+        } finally {
+            interpreter.close();
+        }
+    }
+
+    private static int[] threadCandidates() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] candidates = {1, 2, 4, cores};
+        int n = 0;
+        for (int c : candidates) {
+            if (c > cores) continue;
+            boolean seen = false;
+            for (int i = 0; i < n; i++) seen |= candidates[i] == c;
+            if (!seen) candidates[n++] = c;
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+
+    private static ByteBuffer allocate(Tensor t) {
+        ByteBuffer b = ByteBuffer.allocateDirect(t.numBytes());
+        b.order(ByteOrder.nativeOrder());
+        return b;
+    }
+
+    private static void rewind(Object[] inputs, Map<Integer, Object> outputs) {
+        for (Object o : inputs) ((ByteBuffer) o).rewind();
+        for (Object o : outputs.values()) ((ByteBuffer) o).rewind();
+    }
+
+    private static String stamp(String modelAssetName, ByteBuffer model) {
+        String stamp = STAMPS.get(modelAssetName);
+        if (stamp == null) {
+            stamp = Runtime.getRuntime().availableProcessors() + "/" + model.capacity() + "/" + Long.toHexString(crc(model));
+            STAMPS.put(modelAssetName, stamp);
+        }
+        return stamp;
+    }
+
+    // CRC32.update(ByteBuffer) needs API 26; copy through a small array instead.
+    private static long crc(ByteBuffer model) {
+        ByteBuffer b = model.duplicate();
+        b.clear();
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        while (b.hasRemaining()) {
+            int n = Math.min(chunk.length, b.remaining());
+            b.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        return crc.getValue();
+    }
+}
@@ -1,33 +1,78 @@
 package com.example.face;
 
 import android.content.Context;
-import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
-import android.graphics.PointF;
-import android.media.FaceDetector;
+import android.graphics.Rect;
 
+import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class TfLiteFaceEmbedder {
+    /** Bumped whenever preprocessing changes so cached embeddings computed the old way are not reused. */
+    public static final int PREPROCESSING_VERSION = 2;
+    private static final int DETECT_MAX_DIM = 512;
+
     private final Interpreter interpreter;
     private int inputWidth = 112;
     private int inputHeight = 112;
     private int embSize = 128;
     private final boolean pairwise;
+    private boolean warmedUp;
+    private long invocations;
+    /** Null for float32 tensors; set when the model takes or returns 8-bit quantized values. */
+    private final TensorQuantization[] inputQuant;
+    private final TensorQuantization outputQuant;
+    /** Set when every input's params map pixels onto themselves; faces are then staged as bytes. */
+    private final boolean rawPixels;
+
+    private final ByteBuffer[] inputBuffers;
+    private final FloatBuffer[] inputFloats;
+    private final ByteBuffer outputBuffer;
+    private final FloatBuffer outputFloats;
+    private final float[] pairOutput = new float[1];
+    private final byte[] pairOutputQuantized = new byte[1];
+    /** Pairwise models: the bitmap whose preprocessed tensor currently sits in input slot 0. */
+    private Bitmap boundReference;
+    private int boundGeneration;
+    private final Map<Integer, Object> pairOutputs = new HashMap<>();
+    private final float[] tensorScratch;
+    private final byte[] tensorBytes;
+    private int[] pixelScratch = new int[0];
+    private final Rect srcRect = new Rect();
+    // Interpreter.run wraps its arguments in a new array and map on every call; these are built once.
+    private final Object[] singleInputs;
+    private final Map<Integer, Object> singleOutputs = new HashMap<>();
+    private final float[] alignMatrix = new float[6];
+    private final int[] alignBounds = new int[4];
+    private boolean alignment = true;
+    private FaceMetrics metrics;
+    private int batchSize = 1;
+    private boolean dynamicBatch = true;
+    private ByteBuffer batchInput;
+    private FloatBuffer batchInputFloats;
+    private ByteBuffer batchOutput;
+    private FloatBuffer batchOutputFloats;
 
     public TfLiteFaceEmbedder(Context context, String modelAssetName) {
-        Interpreter.Options options = new Interpreter.Options();
-        options.setNumThreads(Runtime.getRuntime().availableProcessors());
-        this.interpreter = new Interpreter(loadModelBuffer(context, modelAssetName), options);
+        this.interpreter = TfLiteModels.newInterpreter(context, modelAssetName);
         int inCount = interpreter.getInputTensorCount();
         this.pairwise = inCount >= 2;
+        int slots = pairwise ? 2 : 1;
+        this.inputQuant = new TensorQuantization[slots];
+        TensorQuantization outQuant = null;
         try {
             int[] inShape = interpreter.getInputTensor(0).shape();
             if (inShape.length >= 4) {
@@ -37,51 +82,283 @@ public class TfLiteFaceEmbedder {
             int[] outShape = interpreter.getOutputTensor(0).shape();
             if (outShape.length == 2) embSize = outShape[1];
             if (outShape.length == 1) embSize = outShape[0];
+            for (int i = 0; i < slots; i++) inputQuant[i] = quantization(interpreter.getInputTensor(i), true);
+            outQuant = quantization(interpreter.getOutputTensor(0), false);
         } catch (Throwable ignored) {}
+        this.outputQuant = outQuant;
+        boolean raw = true;
+        for (TensorQuantization q : inputQuant) raw &= q != null && q.isPixelIdentity();
+        this.rawPixels = raw;
+        int tensorFloats = inputWidth * inputHeight * 3;
+        this.inputBuffers = new ByteBuffer[slots];
+        this.inputFloats = new FloatBuffer[slots];
+        for (int i = 0; i < slots; i++) {
+            inputBuffers[i] = allocateTensor(tensorFloats, inputQuant[i]);
+            inputFloats[i] = inputQuant[i] == null ? inputBuffers[i].asFloatBuffer() : null;
+        }
+        this.outputBuffer = allocateTensor(embSize, outputQuant);
+        this.outputFloats = outputQuant == null ? outputBuffer.asFloatBuffer() : null;
+        pairOutputs.put(0, outputQuant == null ? pairOutput : pairOutputQuantized);
+        this.singleInputs = new Object[]{inputBuffers[0]};
+        singleOutputs.put(0, outputBuffer);
+        this.tensorScratch = new float[tensorFloats];
+        this.tensorBytes = new byte[rawPixels ? tensorFloats : 0];
+    }
+
+    public synchronized float[] embed(Bitmap bitmap) {
+        float[] emb = new float[embSize];
+        embed(bitmap, emb);
+        return emb;
+    }
+
+    public synchronized void embed(Bitmap bitmap, float[] out) {
+        embed(bitmap, false, out);
+    }
+
+    public synchronized void embed(Bitmap bitmap, boolean mirror, float[] out) {
+        if (pairwise) throw new IllegalStateException("pairwise model");
+        resizeBatch(1);
+        preprocess(bitmap, 0, mirror);
+        runSingle(out);
     }
 
-    public float[] embed(Bitmap bitmap) {
+    /**
+     * Embeds a face from a camera frame, converting YUV straight into the input tensor. {@code face}
+     * is in upright frame coordinates; a centered square is used when it is null.
+     */
+    public synchronized void embed(YuvFrame frame, FaceBox face, boolean mirror, float[] out) {
         if (pairwise) throw new IllegalStateException("pairwise model");
-        Bitmap cropped = cropFaceOrCenter(bitmap);
-        Bitmap resized = Bitmap.createScaledBitmap(cropped, inputWidth, inputHeight, true);
-        ByteBuffer input = ByteBuffer.allocateDirect(4 * inputWidth * inputHeight * 3);
-        input.order(ByteOrder.nativeOrder());
-        int[] pixels = new int[inputWidth * inputHeight];
-        resized.getPixels(pixels, 0, inputWidth, 0, 0, inputWidth, inputHeight);
-        int idx = 0;
-        for (int y = 0; y < inputHeight; y++) {
-            for (int x = 0; x < inputWidth; x++) {
-                int p = pixels[idx++];
-                float r = (((p >> 16) & 0xFF) - 127.5f) / 128.0f;
-                float g = (((p >> 8) & 0xFF) - 127.5f) / 128.0f;
-                float b = ((p & 0xFF) - 127.5f) / 128.0f;
-                input.putFloat(r);
-                input.putFloat(g);
-                input.putFloat(b);
+        resizeBatch(1);
+        int w = frame.uprightWidth();
+        int h = frame.uprightHeight();
+        if (!alignment || face == null || !FaceAlignment.estimate(face, inputWidth, inputHeight, alignMatrix)) {
+            float left, top, cw, ch;
+            if (face != null) {
+                FaceDetectionCache.cropRect(face, w, h, srcRect);
+                left = srcRect.left;
+                top = srcRect.top;
+                cw = srcRect.width();
+                ch = srcRect.height();
+            } else {
+                cw = ch = Math.min(w, h);
+                left = (w - cw) / 2f;
+                top = (h - ch) / 2f;
             }
+            alignMatrix[0] = cw / inputWidth;
+            alignMatrix[1] = 0f;
+            alignMatrix[2] = left;
+            alignMatrix[3] = 0f;
+            alignMatrix[4] = ch / inputHeight;
+            alignMatrix[5] = top;
         }
-        input.rewind();
-        float[][] output = new float[1][embSize];
-        interpreter.run(input, output);
-        float[] emb = output[0];
-        normalizeL2(emb);
-        return emb;
+        long t = FaceMetrics.start(metrics);
+        if (rawPixels) {
+            YuvKernels.warpAffinePixels(frame, alignMatrix, mirror, inputWidth, inputHeight,
+                    inputQuant[0].signed, tensorBytes, 0);
+        } else {
+            YuvKernels.warpAffineNormalize(frame, alignMatrix, mirror, inputWidth, inputHeight, tensorScratch, 0);
+        }
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.CROP_RESIZE, t);
+        upload(0, stagedFloats(), stagedBytes(), 0);
+        runSingle(out);
+    }
+
+    private void runSingle(float[] out) {
+        long t = FaceMetrics.start(metrics);
+        outputBuffer.rewind();
+        interpreter.runForMultipleInputsOutputs(singleInputs, singleOutputs);
+        invocations++;
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.INFERENCE, t);
+        t = FaceMetrics.start(metrics);
+        readOutput(outputBuffer, outputFloats, out, embSize);
+        VectorMath.normalizeL2(out);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.POSTPROCESS, t);
+    }
+
+    public synchronized float[] embedBatch(List<Bitmap> bitmaps) {
+        return embedBatch(bitmaps, false);
+    }
+
+    public synchronized float[] embedBatch(List<Bitmap> bitmaps, boolean withMirror) {
+        return embedViews(bitmaps, true, withMirror);
+    }
+
+    /**
+     * Embeds only the mirrored view of each bitmap, in one invocation. Lets a second scoring stage
+     * reuse the batch size of a plain {@link #embedBatch} over the same bitmaps.
+     */
+    public synchronized float[] embedMirroredBatch(List<Bitmap> bitmaps) {
+        return embedViews(bitmaps, false, true);
+    }
+
+    /** Packs the requested views of each bitmap, plain before mirrored, into a single batched run. */
+    private float[] embedViews(List<Bitmap> bitmaps, boolean plain, boolean mirror) {
+        if (pairwise) throw new IllegalStateException("pairwise model");
+        int views = (plain ? 1 : 0) + (mirror ? 1 : 0);
+        int n = bitmaps.size() * views;
+        float[] out = new float[n * embSize];
+        if (n == 0) return out;
+        if (n == 1 || !resizeBatch(n)) {
+            float[] one = new float[embSize];
+            for (int i = 0; i < n; i++) {
+                embed(bitmaps.get(i / views), !plain || i % views == 1, one);
+                System.arraycopy(one, 0, out, i * embSize, embSize);
+            }
+            return out;
+        }
+        ensureBatchBuffers(n);
+        clearInput(batchInput, batchInputFloats);
+        int tensorFloats = inputWidth * inputHeight * 3;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            Bitmap b = bitmaps.get(i);
+            if (plain) {
+                preprocess(b, false);
+                putInput(batchInput, batchInputFloats, inputQuant[0], stagedFloats(), stagedBytes(), 0, tensorFloats);
+            }
+            if (mirror) {
+                preprocess(b, true);
+                putInput(batchInput, batchInputFloats, inputQuant[0], stagedFloats(), stagedBytes(), 0, tensorFloats);
+            }
+        }
+        runBatch(n, out);
+        return out;
+    }
+
+    public synchronized float[] embedRegions(Bitmap bitmap, List<Rect> regions, ExecutorService executor) {
+        return embedStaged(bitmap, regions, null, executor);
+    }
+
+    /** Like {@link #embedRegions} but aligns each face on its eye landmarks when alignment is enabled. */
+    public synchronized float[] embedFaces(Bitmap bitmap, List<FaceBox> faces, ExecutorService executor) {
+        List<Rect> crops = new ArrayList<>(faces.size());
+        for (FaceBox f : faces) crops.add(FaceDetectionCache.cropRect(f, bitmap.getWidth(), bitmap.getHeight()));
+        return embedStaged(bitmap, crops, faces, executor);
+    }
+
+    public synchronized void setAlignment(boolean enabled) {
+        this.alignment = enabled;
+    }
+
+    public synchronized boolean isAlignmentEnabled() {
+        return alignment;
+    }
+
+    /**
+     * Records per-stage latencies into {@code metrics}; null (the default) turns recording off.
+     * Normalization is fused into the resize kernels, so NORMALIZE covers the tensor upload.
+     */
+    public synchronized void setMetrics(FaceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public synchronized FaceMetrics getMetrics() {
+        return metrics;
+    }
+
+    private float[] embedStaged(Bitmap bitmap, List<Rect> regions, List<FaceBox> boxes, ExecutorService executor) {
+        if (pairwise) throw new IllegalStateException("pairwise model");
+        int n = regions.size();
+        float[] out = new float[n * embSize];
+        if (n == 0) return out;
+        int tensorFloats = inputWidth * inputHeight * 3;
+        float[] staging = rawPixels ? null : new float[n * tensorFloats];
+        byte[] stagingBytes = rawPixels ? new byte[n * tensorFloats] : null;
+        long t = FaceMetrics.start(metrics);
+        fillRegions(bitmap, regions, boxes, staging, stagingBytes, executor);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.CROP_RESIZE, t);
+        if (n == 1 || !resizeBatch(n)) {
+            resizeBatch(1);
+            float[] one = new float[embSize];
+            for (int i = 0; i < n; i++) {
+                upload(0, staging, stagingBytes, i * tensorFloats);
+                runSingle(one);
+                System.arraycopy(one, 0, out, i * embSize, embSize);
+            }
+            return out;
+        }
+        ensureBatchBuffers(n);
+        clearInput(batchInput, batchInputFloats);
+        putInput(batchInput, batchInputFloats, inputQuant[0], staging, stagingBytes, 0, n * tensorFloats);
+        runBatch(n, out);
+        return out;
+    }
+
+    private void runBatch(int n, float[] out) {
+        long t = FaceMetrics.start(metrics);
+        batchInput.rewind();
+        batchOutput.rewind();
+        interpreter.run(batchInput, batchOutput);
+        invocations++;
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.INFERENCE, t);
+        t = FaceMetrics.start(metrics);
+        readOutput(batchOutput, batchOutputFloats, out, n * embSize);
+        for (int i = 0; i < n; i++) VectorMath.normalizeL2(out, i * embSize, embSize);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.POSTPROCESS, t);
+    }
+
+    private void fillRegions(final Bitmap bitmap, List<Rect> regions, final List<FaceBox> boxes,
+                             final float[] staging, final byte[] stagingBytes, ExecutorService executor) {
+        final int tensorFloats = inputWidth * inputHeight * 3;
+        if (executor == null || regions.size() == 1) {
+            for (int i = 0; i < regions.size(); i++) {
+                pixelScratch = sampleFace(bitmap, regions.get(i), boxes != null ? boxes.get(i) : null, false,
+                        pixelScratch, alignMatrix, alignBounds, staging, stagingBytes, i * tensorFloats);
+            }
+            return;
+        }
+        List<Future<?>> pending = new ArrayList<>(regions.size());
+        for (int i = 0; i < regions.size(); i++) {
+            final Rect r = regions.get(i);
+            final FaceBox box = boxes != null ? boxes.get(i) : null;
+            final int offset = i * tensorFloats;
+            pending.add(executor.submit(() -> {
+                sampleFace(bitmap, r, box, false, new int[0], new float[6], new int[4], staging, stagingBytes, offset);
+            }));
+        }
+        try {
+            for (Future<?> f : pending) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Pairwise models only: preprocesses {@code reference} into the first input once, so following
+     * {@link #compare} calls with the same, unmodified bitmap as {@code a} only preprocess the probe.
+     */
+    public synchronized void bindReference(Bitmap reference) {
+        if (!pairwise) throw new IllegalStateException("not a pairwise model");
+        preprocess(reference, 0, false);
+        boundReference = reference;
+        boundGeneration = reference.getGenerationId();
+    }
+
+    public synchronized void clearReference() {
+        boundReference = null;
+    }
+
+    public synchronized boolean isReferenceBound(Bitmap reference) {
+        return boundReference != null && boundReference == reference
+                && boundGeneration == reference.getGenerationId();
     }
 
-    public float compare(Bitmap a, Bitmap b) {
+    public synchronized float compare(Bitmap a, Bitmap b) {
         if (pairwise) {
-            ByteBuffer ia = preprocess(a);
-            ByteBuffer ib = preprocess(b);
-            Object[] inputs = new Object[]{ia, ib};
-            float[] out = new float[1];
-            java.util.Map<Integer, Object> outputs = new java.util.HashMap<>();
-            outputs.put(0, out);
-            interpreter.runForMultipleInputsOutputs(inputs, outputs);
-            return out[0];
+            if (!isReferenceBound(a)) bindReference(a);
+            preprocess(b, 1, false);
+            pairOutput[0] = 0f;
+            long t = FaceMetrics.start(metrics);
+            interpreter.runForMultipleInputsOutputs(inputBuffers, pairOutputs);
+            invocations++;
+            FaceMetrics.stop(metrics, FaceMetrics.Stage.INFERENCE, t);
+            return outputQuant == null ? pairOutput[0] : outputQuant.dequantize(pairOutputQuantized[0]);
         } else {
             float[] e1 = embed(a);
             float[] e2 = embed(b);
-            float d = euclidean(e1, e2);
+            float d = VectorMath.euclidean(e1, e2);
             return 1f / (1f + d);
         }
     }
@@ -90,131 +367,196 @@ public class TfLiteFaceEmbedder {
         return pairwise;
     }
 
-    private ByteBuffer preprocess(Bitmap bitmap) {
-        Bitmap cropped = cropFaceOrCenter(bitmap);
-        Bitmap resized = Bitmap.createScaledBitmap(cropped, inputWidth, inputHeight, true);
-        ByteBuffer input = ByteBuffer.allocateDirect(4 * inputWidth * inputHeight * 3);
-        input.order(ByteOrder.nativeOrder());
-        int[] pixels = new int[inputWidth * inputHeight];
-        resized.getPixels(pixels, 0, inputWidth, 0, 0, inputWidth, inputHeight);
-        int idx = 0;
-        for (int y = 0; y < inputHeight; y++) {
-            for (int x = 0; x < inputWidth; x++) {
-                int p = pixels[idx++];
-                float r = (((p >> 16) & 0xFF) - 127.5f) / 128.0f;
-                float g = (((p >> 8) & 0xFF) - 127.5f) / 128.0f;
-                float b = ((p & 0xFF) - 127.5f) / 128.0f;
-                input.putFloat(r);
-                input.putFloat(g);
-                input.putFloat(b);
+    public int getEmbeddingSize() {
+        return embSize;
+    }
+
+    /** Interpreter runs so far, warm-up excluded; a batched run counts once whatever its size. */
+    public synchronized long getInvocationCount() {
+        return invocations;
+    }
+
+    /** True when the model takes 8-bit input; pixels are then fed as quantized bytes, not floats. */
+    public boolean isQuantized() {
+        return inputQuant[0] != null;
+    }
+
+    private boolean resizeBatch(int n) {
+        if (n == batchSize) return true;
+        if (!dynamicBatch) return false;
+        try {
+            interpreter.resizeInput(0, new int[]{n, inputHeight, inputWidth, 3});
+            interpreter.allocateTensors();
+            batchSize = n;
+            return true;
+        } catch (Throwable t) {
+            dynamicBatch = false;
+            if (batchSize != 1) {
+                interpreter.resizeInput(0, new int[]{1, inputHeight, inputWidth, 3});
+                interpreter.allocateTensors();
+                batchSize = 1;
             }
+            return n == 1;
         }
-        input.rewind();
-        return input;
     }
 
-    public void close() {
-        interpreter.close();
+    private void ensureBatchBuffers(int n) {
+        int floats = n * inputWidth * inputHeight * 3;
+        if (batchInput == null || batchInput.capacity() != bytesPerElement(inputQuant[0]) * floats) {
+            batchInput = allocateTensor(floats, inputQuant[0]);
+            batchInputFloats = inputQuant[0] == null ? batchInput.asFloatBuffer() : null;
+            batchOutput = allocateTensor(n * embSize, outputQuant);
+            batchOutputFloats = outputQuant == null ? batchOutput.asFloatBuffer() : null;
+        }
     }
 
-    private static ByteBuffer loadModelBuffer(Context context, String modelAssetName) {
-        try {
-            AssetFileDescriptor fileDescriptor = context.getAssets().openFd(modelAssetName);
-            FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-            FileChannel fileChannel = inputStream.getChannel();
-            long startOffset = fileDescriptor.getStartOffset();
-            long declaredLength = fileDescriptor.getDeclaredLength();
-            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-        } catch (Exception e1) {
-            try {
-                InputStream is = context.getAssets().open(modelAssetName);
-                byte[] bytes = readAllBytes(is);
-                ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
-                buffer.order(ByteOrder.nativeOrder());
-                buffer.put(bytes);
-                buffer.rewind();
-                return buffer;
-            } catch (Exception e2) {
-                throw new RuntimeException(e2);
+    private void preprocess(Bitmap bitmap, int slot, boolean mirror) {
+        preprocess(bitmap, mirror);
+        upload(slot, stagedFloats(), stagedBytes(), 0);
+    }
+
+    /** Detects and crops one face into {@code tensorScratch}, or {@code tensorBytes} for raw-pixel models. */
+    private void preprocess(Bitmap bitmap, boolean mirror) {
+        long t = FaceMetrics.start(metrics);
+        FaceBox box = FaceDetectionCache.getInstance().findFirstFace(bitmap, DETECT_MAX_DIM, srcRect);
+        if (box == null) centerRect(bitmap, srcRect);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.DETECT, t);
+        t = FaceMetrics.start(metrics);
+        pixelScratch = sampleFace(bitmap, srcRect, box, mirror, pixelScratch, alignMatrix, alignBounds,
+                stagedFloats(), stagedBytes(), 0);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.CROP_RESIZE, t);
+    }
+
+    private float[] stagedFloats() {
+        return rawPixels ? null : tensorScratch;
+    }
+
+    private byte[] stagedBytes() {
+        return rawPixels ? tensorBytes : null;
+    }
+
+    /** Fills an input slot with one staged face, quantizing it for 8-bit models. */
+    private void upload(int slot, float[] src, byte[] srcBytes, int offset) {
+        clearInput(inputBuffers[slot], inputFloats[slot]);
+        putInput(inputBuffers[slot], inputFloats[slot], inputQuant[slot], src, srcBytes, offset,
+                inputWidth * inputHeight * 3);
+        inputBuffers[slot].rewind();
+    }
+
+    private static void clearInput(ByteBuffer bytes, FloatBuffer floats) {
+        bytes.clear();
+        if (floats != null) floats.clear();
+    }
+
+    /**
+     * Appends a staged face at the tensor's position: {@code srcBytes} as is when faces are staged
+     * as pixels, otherwise {@code src}; {@code floats} is null for quantized tensors.
+     */
+    private void putInput(ByteBuffer bytes, FloatBuffer floats, TensorQuantization quant,
+                          float[] src, byte[] srcBytes, int offset, int length) {
+        long t = FaceMetrics.start(metrics);
+        if (srcBytes != null) bytes.put(srcBytes, offset, length);
+        else if (quant == null) floats.put(src, offset, length);
+        else quant.quantize(src, offset, length, bytes);
+        FaceMetrics.stop(metrics, FaceMetrics.Stage.NORMALIZE, t);
+    }
+
+    private void readOutput(ByteBuffer bytes, FloatBuffer floats, float[] out, int length) {
+        if (outputQuant == null) {
+            floats.rewind();
+            floats.get(out, 0, length);
+        } else {
+            bytes.rewind();
+            outputQuant.dequantize(bytes, out, 0, length);
+        }
+    }
+
+    /**
+     * Writes one face into {@code dst}: warped onto the canonical eye positions when {@code box} has
+     * landmarks and alignment is on, otherwise resized from {@code crop}. Returns the pixel buffer used,
+     * which may have been grown. Writes pixel bytes to {@code dstBytes} instead when it is not null.
+     */
+    private int[] sampleFace(Bitmap bitmap, Rect crop, FaceBox box, boolean mirror, int[] pixels,
+                             float[] m, int[] bounds, float[] dst, byte[] dstBytes, int offset) {
+        if (alignment && box != null && FaceAlignment.estimate(box, inputWidth, inputHeight, m)) {
+            FaceAlignment.sourceBounds(m, inputWidth, inputHeight, bitmap.getWidth(), bitmap.getHeight(), bounds);
+            int w = bounds[2] - bounds[0];
+            int h = bounds[3] - bounds[1];
+            if (w > 0 && h > 0) {
+                if (pixels.length < w * h) pixels = new int[w * h];
+                bitmap.getPixels(pixels, 0, w, bounds[0], bounds[1], w, h);
+                m[2] -= bounds[0];
+                m[5] -= bounds[1];
+                if (dstBytes != null) {
+                    ImageKernels.warpAffinePixels(pixels, w, h, m, mirror, inputWidth, inputHeight,
+                            inputQuant[0].signed, dstBytes, offset);
+                } else {
+                    ImageKernels.warpAffineNormalize(pixels, w, h, m, mirror, inputWidth, inputHeight, dst, offset);
+                }
+                return pixels;
             }
         }
+        int w = crop.width();
+        int h = crop.height();
+        if (pixels.length < w * h) pixels = new int[w * h];
+        bitmap.getPixels(pixels, 0, w, crop.left, crop.top, w, h);
+        if (dstBytes != null) {
+            ImageKernels.cropResizePixels(pixels, w, h, 0f, 0f, w, h, mirror,
+                    inputWidth, inputHeight, inputQuant[0].signed, dstBytes, offset);
+        } else {
+            ImageKernels.cropResizeNormalize(pixels, w, h, 0f, 0f, w, h, mirror,
+                    inputWidth, inputHeight, dst, offset);
+        }
+        return pixels;
     }
 
-    private static byte[] readAllBytes(InputStream is) throws Exception {
-        byte[] buf = new byte[8192];
-        java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
-        int n;
-        while ((n = is.read(buf)) > 0) bos.write(buf, 0, n);
-        is.close();
-        return bos.toByteArray();
+    public synchronized void warmUp() {
+        if (warmedUp) return;
+        boundReference = null;
+        Arrays.fill(tensorScratch, 0f);
+        for (int i = 0; i < inputBuffers.length; i++) upload(i, tensorScratch, null, 0);
+        if (pairwise) {
+            interpreter.runForMultipleInputsOutputs(inputBuffers, pairOutputs);
+        } else {
+            resizeBatch(1);
+            outputBuffer.rewind();
+            interpreter.run(inputBuffers[0], outputBuffer);
+        }
+        warmedUp = true;
+    }
+
+    public synchronized void close() {
+        interpreter.close();
     }
 
-    private static void normalizeL2(float[] v) {
-        float sum = 0f;
-        for (float f : v) sum += f * f;
-        float norm = (float) Math.sqrt(sum);
-        if (norm == 0f) return;
-        for (int i = 0; i < v.length; i++) v[i] /= norm;
+    private static ByteBuffer allocateTensor(int elements, TensorQuantization quant) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytesPerElement(quant) * elements);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
     }
 
-    private static float euclidean(float[] a, float[] b) {
-        float s = 0f;
-        for (int i = 0; i < a.length; i++) {
-            float d = a[i] - b[i];
-            s += d * d;
+    private static int bytesPerElement(TensorQuantization quant) {
+        return quant == null ? 4 : 1;
+    }
+
+    private static TensorQuantization quantization(Tensor tensor, boolean input) {
+        DataType type = tensor.dataType();
+        if (type != DataType.UINT8 && type != DataType.INT8) return null;
+        boolean signed = type == DataType.INT8;
+        Tensor.QuantizationParams params = tensor.quantizationParams();
+        if (params.getScale() == 0f) {
+            // No params: inputs are raw pixels, outputs are only compared after L2 normalization.
+            return input ? TensorQuantization.forPixels(signed) : new TensorQuantization(signed, 1f, 0f);
         }
-        return (float) Math.sqrt(s);
+        return new TensorQuantization(signed, params.getScale(), params.getZeroPoint());
     }
 
-    private static Bitmap centerCrop(Bitmap src) {
+    private static void centerRect(Bitmap src, Rect out) {
         int w = src.getWidth();
         int h = src.getHeight();
         int size = Math.min(w, h);
         int x = (w - size) / 2;
         int y = (h - size) / 2;
-        return Bitmap.createBitmap(src, x, y, size, size);
-    }
-
-    private static Bitmap cropFaceOrCenter(Bitmap src) {
-        try {
-            Bitmap work = src;
-            int maxDim = Math.max(work.getWidth(), work.getHeight());
-            if (maxDim > 512) {
-                float scale = 512f / maxDim;
-                int nw = Math.max(1, Math.round(work.getWidth() * scale));
-                int nh = Math.max(1, Math.round(work.getHeight() * scale));
-                work = Bitmap.createScaledBitmap(work, nw, nh, true);
-            }
-            Bitmap work565 = work.copy(Bitmap.Config.RGB_565, false);
-            FaceDetector fd = new FaceDetector(work565.getWidth(), work565.getHeight(), 1);
-            FaceDetector.Face[] faces = new FaceDetector.Face[1];
-            int found = fd.findFaces(work565, faces);
-            if (found >= 1 && faces[0] != null) {
-                FaceDetector.Face f = faces[0];
-                PointF mid = new PointF();
-                f.getMidPoint(mid);
-                float d = f.eyesDistance();
-                float left = mid.x - 1.2f * d;
-                float top = mid.y - 1.6f * d;
-                float right = mid.x + 1.2f * d;
-                float bottom = mid.y + 1.6f * d;
-                int wl = work565.getWidth();
-                int hl = work565.getHeight();
-                int x = Math.max(0, Math.round(left));
-                int y = Math.max(0, Math.round(top));
-                int w = Math.min(wl - x, Math.round(right - left));
-                int h = Math.min(hl - y, Math.round(bottom - top));
-                if (w > 0 && h > 0) {
-                    float sx = (float) src.getWidth() / (float) work565.getWidth();
-                    float sy = (float) src.getHeight() / (float) work565.getHeight();
-                    int ox = Math.max(0, Math.min(src.getWidth() - 1, Math.round(x * sx)));
-                    int oy = Math.max(0, Math.min(src.getHeight() - 1, Math.round(y * sy)));
-                    int ow = Math.max(1, Math.min(src.getWidth() - ox, Math.round(w * sx)));
-                    int oh = Math.max(1, Math.min(src.getHeight() - oy, Math.round(h * sy)));
-                    return Bitmap.createBitmap(src, ox, oy, ow, oh);
-                }
-            }
-        } catch (Throwable ignored) {}
-        return centerCrop(src);
+        out.set(x, y, x + size, y + size);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.example.face;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+final class TfLiteModels {
+    private TfLiteModels() {}
+
+    /** Creates an interpreter with the model's calibrated settings, or the untuned default. */
+    static Interpreter newInterpreter(Context context, String modelAssetName) {
+        ByteBuffer model = loadModelBuffer(context, modelAssetName);
+        InterpreterTuning.Config config = InterpreterTuning.get(context, modelAssetName, model);
+        if (config == null) config = InterpreterTuning.defaultConfig();
+        return new Interpreter(model, InterpreterTuning.options(config));
+    }
+
+    static ByteBuffer loadModelBuffer(Context context, String modelAssetName) {
+        try {
+            AssetFileDescriptor fileDescriptor = context.getAssets().openFd(modelAssetName);
+            FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+            FileChannel fileChannel = inputStream.getChannel();
+            long startOffset = fileDescriptor.getStartOffset();
+            long declaredLength = fileDescriptor.getDeclaredLength();
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+        } catch (Exception e1) {
+            try {
+                InputStream is = context.getAssets().open(modelAssetName);
+                byte[] bytes = readAllBytes(is);
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+                buffer.order(ByteOrder.nativeOrder());
+                buffer.put(bytes);
+                buffer.rewind();
+                return buffer;
+            } catch (Exception e2) {
+                throw new RuntimeException(e2);
+            }
+        }
+    }
+
+    private static byte[] readAllBytes(InputStream is) throws Exception {
+        byte[] buf = new byte[8192];
+        java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
+        int n;
+        while ((n = is.read(buf)) > 0) bos.write(buf, 0, n);
+        is.close();
+        return bos.toByteArray();
+    }
+}
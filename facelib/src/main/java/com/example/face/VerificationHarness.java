@@ -0,0 +1,159 @@
+package com.example.face;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the full verification pipeline (detection, alignment, embedding, cascade, scoring) over a
+ * directory of labelled pairs; see {@link VerificationEval} for the layout. Each pair's latency covers
+ * {@link FaceRecognition#computeSimilarity(Bitmap, Bitmap)} only, not image decoding. Meant to be
+ * driven from an instrumentation run on a device or a headless emulator; the written results can be
+ * re-analysed on a plain JVM with {@link VerificationEval#main}.
+ */
+public final class VerificationHarness {
+    private VerificationHarness() {}
+
+    /**
+     * Two configurations scored over the same pairs, with the mean interpreter invocations per
+     * verification. A batched run counts once, so together with each report's latency percentiles
+     * this reflects what a configuration costs, not how many views it embeds.
+     */
+    public static final class Comparison {
+        public final String baselineName;
+        public final VerificationEval.Report baseline;
+        public final double baselineInvocations;
+        public final String candidateName;
+        public final VerificationEval.Report candidate;
+        public final double candidateInvocations;
+
+        Comparison(String baselineName, VerificationEval.Report baseline, double baselineInvocations,
+                   String candidateName, VerificationEval.Report candidate, double candidateInvocations) {
+            this.baselineName = baselineName;
+            this.baseline = baseline;
+            this.baselineInvocations = baselineInvocations;
+            this.candidateName = candidateName;
+            this.candidate = candidate;
+            this.candidateInvocations = candidateInvocations;
+        }
+
+        public String toJson(float operatingThreshold) {
+            return "{" + entry(baselineName, baseline, baselineInvocations, operatingThreshold)
+                    + "," + entry(candidateName, candidate, candidateInvocations, operatingThreshold) + "}";
+        }
+
+        private static String entry(String name, VerificationEval.Report report, double invocations, float threshold) {
+            return "\"" + name + "\":{\"invocations\":" + String.format(Locale.US, "%.3f", invocations)
+                    + ",\"report\":" + report.toJson(threshold) + "}";
+        }
+    }
+
+    public static VerificationEval.Report run(Context context, String modelAssetName, float alpha, float c0,
+                                              File pairDir, File resultsTsv) throws IOException {
+        TfLiteFaceEmbedder embedder = new TfLiteFaceEmbedder(context, modelAssetName);
+        try {
+            embedder.warmUp();
+            FaceRecognition fr = new FaceRecognition(embedder).setAlpha(alpha).setCenter(c0);
+            return run(fr, pairDir, resultsTsv);
+        } finally {
+            embedder.close();
+        }
+    }
+
+    /**
+     * Scores the pairs twice with one model: always running both views ({@code "full"}), and with
+     * the flip pass cascaded behind {@code threshold +/- halfWidth} ({@code "cascade"}). Per-pair rows
+     * go to {@code full.tsv} and {@code cascade.tsv} in {@code resultsDir} when it is not null.
+     */
+    public static Comparison compareCascade(Context context, String modelAssetName, float alpha, float c0,
+                                            float threshold, float halfWidth, File pairDir, File resultsDir)
+            throws IOException {
+        TfLiteFaceEmbedder embedder = new TfLiteFaceEmbedder(context, modelAssetName);
+        try {
+            embedder.warmUp();
+            FaceRecognition full = new FaceRecognition(embedder).setAlpha(alpha).setCenter(c0)
+                    .setUncertaintyBand(threshold, -1f);
+            FaceRecognition cascade = new FaceRecognition(embedder).setAlpha(alpha).setCenter(c0)
+                    .setUncertaintyBand(threshold, halfWidth);
+            VerificationEval.Report fullReport = run(full, pairDir, resultsFile(resultsDir, "full.tsv"));
+            VerificationEval.Report cascadeReport = run(cascade, pairDir, resultsFile(resultsDir, "cascade.tsv"));
+            return new Comparison("full", fullReport, full.getAverageInvocations(),
+                    "cascade", cascadeReport, cascade.getAverageInvocations());
+        } finally {
+            embedder.close();
+        }
+    }
+
+    /**
+     * Scores the pairs with a float model ({@code "float"}) and its quantized export
+     * ({@code "quantized"}) under the same calibration, so the reports differ only by the weights;
+     * latency percentiles come with each report. Both models are warmed up before their run, and
+     * per-pair rows go to {@code float.tsv} and {@code quantized.tsv} in {@code resultsDir}.
+     */
+    public static Comparison compareModels(Context context, String floatAssetName, String quantizedAssetName,
+                                           float alpha, float c0, File pairDir, File resultsDir) throws IOException {
+        FaceRecognition floatRun;
+        VerificationEval.Report floatReport;
+        TfLiteFaceEmbedder embedder = new TfLiteFaceEmbedder(context, floatAssetName);
+        try {
+            embedder.warmUp();
+            floatRun = new FaceRecognition(embedder).setAlpha(alpha).setCenter(c0);
+            floatReport = run(floatRun, pairDir, resultsFile(resultsDir, "float.tsv"));
+        } finally {
+            embedder.close();
+        }
+        FaceRecognition quantizedRun;
+        VerificationEval.Report quantizedReport;
+        embedder = new TfLiteFaceEmbedder(context, quantizedAssetName);
+        try {
+            if (!embedder.isQuantized()) {
+                throw new IllegalArgumentException(quantizedAssetName + " is not a quantized model");
+            }
+            embedder.warmUp();
+            quantizedRun = new FaceRecognition(embedder).setAlpha(alpha).setCenter(c0);
+            quantizedReport = run(quantizedRun, pairDir, resultsFile(resultsDir, "quantized.tsv"));
+        } finally {
+            embedder.close();
+        }
+        return new Comparison("float", floatReport, floatRun.getAverageInvocations(),
+                "quantized", quantizedReport, quantizedRun.getAverageInvocations());
+    }
+
+    public static VerificationEval.Report run(FaceRecognition fr, File pairDir, File resultsTsv) throws IOException {
+        List<VerificationEval.Pair> pairs = VerificationEval.readPairs(pairDir);
+        VerificationEval eval = new VerificationEval();
+        PrintStream out = resultsTsv != null ? new PrintStream(resultsTsv, "UTF-8") : null;
+        try {
+            for (VerificationEval.Pair pair : pairs) {
+                Bitmap a = decode(new File(pairDir, pair.first));
+                Bitmap b = decode(new File(pairDir, pair.second));
+                long t = System.nanoTime();
+                float score = fr.computeSimilarity(a, b);
+                long elapsed = System.nanoTime() - t;
+                eval.add(score, pair.genuine, elapsed);
+                if (out != null) out.println(VerificationEval.resultRow(pair, score, elapsed));
+                a.recycle();
+                b.recycle();
+            }
+        } finally {
+            if (out != null) out.close();
+        }
+        return eval.report();
+    }
+
+    private static File resultsFile(File dir, String name) {
+        return dir != null ? new File(dir, name) : null;
+    }
+
+    private static Bitmap decode(File file) throws IOException {
+        Bitmap bmp = BitmapFactory.decodeFile(file.getAbsolutePath());
+        if (bmp == null) throw new IOException("cannot decode " + file);
+        return bmp;
+    }
+}
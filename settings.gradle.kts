@@ -22,3 +22,4 @@ pluginManagement {
 rootProject.name = "IAttend"
 include(":app")
 include(":facelib")
+include(":facelib-core")